@@ -14,6 +14,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.util.ArrayList;
+import java.util.List;
 
 @Singleton
 public class AnswerBuilderPanel extends PluginPanel
@@ -43,6 +44,10 @@ public class AnswerBuilderPanel extends PluginPanel
 	private JButton clearAnswerButton;
 	private JButton submitAnswerButton;
 
+	// Last game state captured in Answer Builder Mode, EDT only
+	private ApiClient.GameStateSubmission lastCapture;
+	private String lastCaptureTrigger;
+
 	public AnswerBuilderPanel()
 	{
 		this.answerBuilder = new AnswerBuilder();
@@ -169,9 +174,20 @@ public class AnswerBuilderPanel extends PluginPanel
 	@Inject
 	public void initialize()
 	{
+		gameStateService.setAnswerBuilderPanel(this);
 		updateConstraintsDisplay();
 	}
 
+	// Called from the submission thread for every capture while in Answer Builder Mode
+	public void onCapture(ApiClient.GameStateSubmission capture, String trigger)
+	{
+		SwingUtilities.invokeLater(() -> {
+			lastCapture = capture;
+			lastCaptureTrigger = trigger;
+			updateConstraintsDisplay();
+		});
+	}
+
 	private void onAddLocationConstraint(ActionEvent e)
 	{
 		// Find the parent frame
@@ -247,6 +263,7 @@ public class AnswerBuilderPanel extends PluginPanel
 	private void onClearAnswer(ActionEvent e)
 	{
 		answerBuilder.clear();
+		lastCapture = null;
 		rewardTextArea.setText("");
 		updateConstraintsDisplay();
 		updateSubmitButtonState();
@@ -265,13 +282,30 @@ public class AnswerBuilderPanel extends PluginPanel
 		}
 		else
 		{
+			// Mark each constraint with whether the last capture satisfied it
+			List<ConstraintEvaluator.Result> results = lastCapture != null
+				? ConstraintEvaluator.evaluate(answerBuilder.getConstraints(), lastCapture)
+				: null;
+			int passed = 0;
 			for (int i = 0; i < answerBuilder.getConstraintCount(); i++)
 			{
 				Constraint constraint = answerBuilder.getConstraint(i);
-				JPanel constraintPanel = createConstraintPanel(constraint, i);
+				Boolean result = results != null ? results.get(i).passed : null;
+				if (Boolean.TRUE.equals(result))
+				{
+					passed++;
+				}
+				JPanel constraintPanel = createConstraintPanel(constraint, i, result);
 				constraintsPanel.add(constraintPanel);
 				constraintsPanel.add(Box.createVerticalStrut(5));
 			}
+
+			if (results != null)
+			{
+				statusLabel.setText(ConstraintEvaluator.matches(answerBuilder.getConstraints(), lastCapture)
+					? String.format("Test: answer accepted (%s)", lastCaptureTrigger)
+					: String.format("Test: %d/%d constraints pass (%s)", passed, results.size(), lastCaptureTrigger));
+			}
 		}
 
 		constraintsPanel.revalidate();
@@ -293,7 +327,8 @@ public class AnswerBuilderPanel extends PluginPanel
 		}
 	}
 
-	private JPanel createConstraintPanel(Constraint constraint, int index)
+	// passed is null until something has been captured to test against
+	private JPanel createConstraintPanel(Constraint constraint, int index, Boolean passed)
 	{
 		JPanel panel = new JPanel(new BorderLayout());
 		panel.setBackground(ColorScheme.DARKER_GRAY_COLOR);
@@ -301,6 +336,11 @@ public class AnswerBuilderPanel extends PluginPanel
 
 		JLabel typeLabel = new JLabel(constraint.getConstraintType().toUpperCase());
 		typeLabel.setForeground(Color.CYAN);
+		if (passed != null)
+		{
+			typeLabel.setText((passed ? "✓ " : "✗ ") + typeLabel.getText());
+			typeLabel.setForeground(passed ? Color.GREEN : Color.RED);
+		}
 		typeLabel.setFont(typeLabel.getFont().deriveFont(Font.BOLD));
 
 		JLabel descLabel = new JLabel(constraint.description());
@@ -1,24 +1,41 @@
 package com.lennyslabyrinth;
 
 import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import com.lennyslabyrinth.constraints.LocationConstraint;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.ConnectionPool;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.Reader;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Slf4j
 @Singleton
@@ -26,41 +43,418 @@ public class ApiClient
 {
 	private static final String API_BASE_URL = "https://us-central1-spatial-cargo-409717.cloudfunctions.net/lennys-labyrinth-api";
 	private static final String SUBMIT_GUESS_ENDPOINT = "/submit-guess";
+	private static final String SUBMIT_GUESSES_ENDPOINT = "/submit-guesses";
 	private static final String VALIDATE_KEY_ENDPOINT = "/validate-key";
-	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+	private static final String LIVE_ENDPOINT = "/live";
+	// Carries the request id, which the binary format has no room for
+	private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	private static final MediaType BINARY = MediaType.get(GameStateCodec.MEDIA_TYPE);
+
+	// Transport tuning - a few long-lived connections are plenty for one player
+	private static final int MAX_IDLE_CONNECTIONS = 4;
+	private static final long KEEP_ALIVE_MINUTES = 5;
+	private static final long CONNECT_TIMEOUT_SECONDS = 5;
+	private static final long READ_TIMEOUT_SECONDS = 10;
+	private static final long WRITE_TIMEOUT_SECONDS = 10;
+	private static final long CALL_TIMEOUT_SECONDS = 20;
+	private static final long WARM_UP_INTERVAL_MILLIS = 60_000;
+
+	// Responses are small; anything bigger than this is not worth reading
+	private static final int MAX_RESPONSE_CHARS = 64 * 1024;
+	private static final int MAX_ERROR_MESSAGE_CHARS = 512;
 
 	private final OkHttpClient httpClient;
+	private final LennysLabyrinthConfig config;
 	private final Gson gson;
+	private final ValidationCache validationCache = new ValidationCache();
+	private final CircuitBreaker submitBreaker = new CircuitBreaker(SUBMIT_GUESS_ENDPOINT);
+	private final CircuitBreaker validateBreaker = new CircuitBreaker(VALIDATE_KEY_ENDPOINT);
+	private final ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter();
+	private final CallRegistry callRegistry = new CallRegistry();
+	private final SubmissionChannel channel;
+	private volatile String channelEventKey;
+	private volatile SubmissionChannel.Listener channelListener;
+	private volatile long lastWarmUpMillis;
+	private volatile boolean binaryAccepted;
+	private volatile boolean batchSupported = true;
 
 	@Inject
-	public ApiClient()
+	public ApiClient(OkHttpClient okHttpClient, LennysLabyrinthConfig config)
 	{
-		this.httpClient = new OkHttpClient();
-		this.gson = new Gson();
+		this.httpClient = createTransport(okHttpClient);
+		this.config = config;
+		this.gson = WireAdapters.GSON;
+		this.channel = new SubmissionChannel(httpClient);
+	}
+
+	private static OkHttpClient createTransport(OkHttpClient sharedClient)
+	{
+		// Derive from RuneLite's client so we share its dispatcher threads, but keep
+		// our own pool so idle connections to the API are not evicted by other traffic
+		return sharedClient.newBuilder()
+			.connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+			.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+			.connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+			.readTimeout(READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+			.writeTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+			.callTimeout(CALL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+			.build();
+	}
+
+	private String baseUrl()
+	{
+		// Lets developers point the plugin at a local stand-in server
+		String override = config.apiBaseUrl().trim();
+		if (override.isEmpty())
+		{
+			return API_BASE_URL;
+		}
+		return override.endsWith("/") ? override.substring(0, override.length() - 1) : override;
+	}
+
+	// Forgets everything learned about the previous server
+	public void onBaseUrlChanged()
+	{
+		validationCache.invalidateAll();
+		binaryAccepted = false;
+		batchSupported = true;
+		lastWarmUpMillis = 0;
+
+		String eventKey = channelEventKey;
+		if (eventKey != null)
+		{
+			channel.close();
+			openChannel(eventKey, channelListener);
+		}
+	}
+
+	// Keeps a live connection open for the event key when enabled, so submissions skip the
+	// per-request exchange and the server can push event updates
+	public void openChannel(String eventKey, SubmissionChannel.Listener listener)
+	{
+		channelEventKey = eventKey;
+		channelListener = listener;
+		if (!config.liveConnection())
+		{
+			channel.close();
+			return;
+		}
+
+		String url = baseUrl() + LIVE_ENDPOINT + "/" + URLEncoder.encode(eventKey, StandardCharsets.UTF_8);
+		channel.open(url, eventKey, listener);
+	}
+
+	public void closeChannel()
+	{
+		channelEventKey = null;
+		channelListener = null;
+		channel.close();
+	}
+
+	// Also stops the channel's timer thread, used on shutdown
+	public void shutDownChannel()
+	{
+		channelEventKey = null;
+		channelListener = null;
+		channel.shutDown();
+	}
+
+	// Applies a change to the live connection setting
+	public void onLiveConnectionChanged()
+	{
+		String eventKey = channelEventKey;
+		if (eventKey != null)
+		{
+			openChannel(eventKey, channelListener);
+		}
+	}
+
+	// Opens a pooled connection in the background so the first real submission
+	// does not pay for DNS, TCP and TLS setup
+	public void warmUp()
+	{
+		long now = System.currentTimeMillis();
+		if (now - lastWarmUpMillis < WARM_UP_INTERVAL_MILLIS)
+		{
+			return;
+		}
+		lastWarmUpMillis = now;
+
+		Request request = new Request.Builder()
+			.url(baseUrl())
+			.head()
+			.build();
+
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		callRegistry.enqueue(httpClient.newCall(request), CallRegistry.Purpose.WARM_UP, null, future, new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				log.debug("API warm-up failed", e);
+				lastWarmUpMillis = 0;
+				future.complete(null);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response)
+			{
+				// Any response means the connection is established and pooled
+				recordAcceptedFormats(response);
+				response.close();
+				log.debug("API connection warmed up ({})", response.protocol());
+				future.complete(null);
+			}
+		});
+	}
+
+	// Drops validations still running for a key the player has moved away from. Submissions are left
+	// alone because the outbox has journaled them and their answers are still wanted.
+	public void cancelRequests(String eventKey)
+	{
+		int cancelled = callRegistry.cancel(CallRegistry.Purpose.VALIDATE, eventKey);
+		if (cancelled > 0)
+		{
+			log.debug("Cancelled {} request(s) for event key '{}'", cancelled, eventKey);
+		}
+	}
+
+	// Cancels everything in flight, used on shutdown
+	public void cancelAll()
+	{
+		int cancelled = callRegistry.cancelAll();
+		if (cancelled > 0)
+		{
+			log.debug("Cancelled {} in-flight request(s)", cancelled);
+		}
+	}
+
+	// Gives the submission its request id the first time it is sent; retries and fallbacks keep it
+	static void assignRequestId(GameStateSubmission gameState)
+	{
+		if (gameState.request_id == null)
+		{
+			gameState.request_id = UUID.randomUUID().toString();
+		}
 	}
 
 	public CompletableFuture<ApiResponse> submitGuess(GameStateSubmission gameState)
 	{
-		CompletableFuture<ApiResponse> future = new CompletableFuture<>();
+		assignRequestId(gameState);
+		return guard(submitBreaker, () -> {
+			CompletableFuture<ApiResponse> future = new CompletableFuture<>();
+			if (channel.isOpen())
+			{
+				submitOverChannel(gameState, future);
+			}
+			else
+			{
+				submitGuess(gameState, config.binaryWireFormat() && binaryAccepted, future);
+			}
+			return future;
+		});
+	}
+
+	private void submitOverChannel(GameStateSubmission gameState, CompletableFuture<ApiResponse> future)
+	{
+		CompletableFuture<ApiResponse> framed = channel.submit(gameState);
+		framed.thenAccept(response -> {
+			if (response != null)
+			{
+				future.complete(response);
+			}
+			else if (!future.isDone())
+			{
+				// The channel dropped or timed out - the plain HTTP path is always there
+				submitGuess(gameState, config.binaryWireFormat() && binaryAccepted, future);
+			}
+		});
+		future.whenComplete((response, error) -> {
+			if (future.isCancelled())
+			{
+				framed.cancel(false);
+			}
+		});
+	}
+
+	// Sends several submissions in one request and returns one response per submission, in order
+	public CompletableFuture<List<ApiResponse>> submitGuesses(List<GameStateSubmission> gameStates)
+	{
+		if (gameStates.isEmpty())
+		{
+			return CompletableFuture.completedFuture(Collections.emptyList());
+		}
+		gameStates.forEach(ApiClient::assignRequestId);
+
+		// Frames on an open channel are already cheap, so batching would only add latency
+		if (gameStates.size() == 1 || !batchSupported || channel.isOpen())
+		{
+			return submitIndividually(gameStates);
+		}
+
+		return guard(submitBreaker, () -> requestBatch(gameStates),
+			responses -> !responses.isEmpty() && isTransportFailure(responses.get(0)),
+			rejection -> Collections.nCopies(gameStates.size(), rejection));
+	}
+
+	private CompletableFuture<List<ApiResponse>> submitIndividually(List<GameStateSubmission> gameStates)
+	{
+		List<CompletableFuture<ApiResponse>> futures = new ArrayList<>(gameStates.size());
+		for (GameStateSubmission gameState : gameStates)
+		{
+			futures.add(submitGuess(gameState));
+		}
+
+		CompletableFuture<List<ApiResponse>> combined = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+			List<ApiResponse> responses = new ArrayList<>(futures.size());
+			for (CompletableFuture<ApiResponse> future : futures)
+			{
+				responses.add(future.join());
+			}
+			return responses;
+		});
+		combined.whenComplete((responses, error) -> {
+			if (combined.isCancelled())
+			{
+				futures.forEach(future -> future.cancel(false));
+			}
+		});
+		return combined;
+	}
+
+	private CompletableFuture<List<ApiResponse>> requestBatch(List<GameStateSubmission> gameStates)
+	{
+		CompletableFuture<List<ApiResponse>> future = new CompletableFuture<>();
+		int count = gameStates.size();
 
 		try
 		{
-			String json = gson.toJson(gameState);
-			log.debug("Submitting game state JSON: {}", json);
+			JsonRequestBody body = new JsonRequestBody(gson, new BatchSubmission(gameStates), BatchSubmission.class, config.compressRequests());
+			Request.Builder requestBuilder = new Request.Builder()
+				.url(baseUrl() + SUBMIT_GUESSES_ENDPOINT)
+				.header("Accept", "application/json")
+				.post(body);
+			if (body.isGzip())
+			{
+				requestBuilder.header("Content-Encoding", "gzip");
+			}
 
-			RequestBody body = RequestBody.create(JSON, json);
-			Request request = new Request.Builder()
-				.url(API_BASE_URL + SUBMIT_GUESS_ENDPOINT)
-				.post(body)
-				.build();
+			log.debug("Submitting batch of {} game states", count);
+			callRegistry.enqueue(httpClient.newCall(requestBuilder.build()), CallRegistry.Purpose.SUBMIT, null, future, new Callback()
+			{
+				@Override
+				public void onFailure(Call call, IOException e)
+				{
+					log.error("Batch API request failed", e);
+					future.complete(Collections.nCopies(count,
+						ApiResponse.errorWithType("NETWORK_ERROR", "Network error: " + e.getMessage())));
+				}
+
+				@Override
+				public void onResponse(Call call, Response response)
+				{
+					try (response)
+					{
+						if (response.code() == 404 || response.code() == 405)
+						{
+							// Server has no batch endpoint - remember that and send one by one
+							log.info("Server does not support batch submissions, sending individually");
+							batchSupported = false;
+							CompletableFuture<List<ApiResponse>> individual = submitIndividually(gameStates);
+							individual.thenAccept(future::complete);
+							future.whenComplete((result, error) -> {
+								if (future.isCancelled())
+								{
+									individual.cancel(false);
+								}
+							});
+							return;
+						}
+
+						if (!response.isSuccessful())
+						{
+							String errorBody = readErrorBody(response);
+							log.debug("Batch API response code: {}, body: {}", response.code(), errorBody);
+							String errorType = (response.code() >= 500 || response.code() == 429) ? "SERVER_ERROR" : "REJECTED";
+							future.complete(Collections.nCopies(count, ApiResponse.errorWithType(errorType,
+								String.format("Server error %d: %s", response.code(), errorBody))));
+							return;
+						}
+
+						BatchResponse batchResponse = null;
+						try
+						{
+							batchResponse = readJson(response, WireAdapters.BATCH_RESPONSE);
+							log.debug("Batch API response code: {}, {} result(s)", response.code(),
+								batchResponse.results != null ? batchResponse.results.size() : 0);
+						}
+						catch (JsonParseException e)
+						{
+							log.error("Failed to parse batch API response JSON", e);
+						}
+
+						if (batchResponse == null || batchResponse.results == null || batchResponse.results.size() != count)
+						{
+							future.complete(Collections.nCopies(count, ApiResponse.errorWithType("PARSE_ERROR", "Invalid response format")));
+							return;
+						}
+						future.complete(batchResponse.results);
+					}
+					catch (IOException e)
+					{
+						log.error("Failed to read batch response body", e);
+						future.complete(Collections.nCopies(count, ApiResponse.errorWithType("IO_ERROR", "Failed to read server response")));
+					}
+				}
+			});
+		}
+		catch (Exception e)
+		{
+			log.error("Failed to create batch API request", e);
+			future.complete(Collections.nCopies(count,
+				ApiResponse.errorWithType("REQUEST_ERROR", "Request creation failed: " + e.getMessage())));
+		}
 
-			httpClient.newCall(request).enqueue(new Callback()
+		return future;
+	}
+
+	private void submitGuess(GameStateSubmission gameState, boolean binary, CompletableFuture<ApiResponse> future)
+	{
+		try
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Submitting game state JSON: {}", gson.toJson(gameState));
+			}
+
+			Request.Builder requestBuilder = new Request.Builder()
+				.url(baseUrl() + SUBMIT_GUESS_ENDPOINT)
+				.header("Accept", "application/json")
+				.header(IDEMPOTENCY_KEY_HEADER, gameState.request_id);
+
+			byte[] encoded = binary ? encodeBinary(gameState) : null;
+			if (encoded != null)
+			{
+				requestBuilder.post(RequestBody.create(BINARY, encoded));
+			}
+			else
+			{
+				JsonRequestBody body = new JsonRequestBody(gson, gameState, GameStateSubmission.class, config.compressRequests());
+				requestBuilder.post(body);
+				if (body.isGzip())
+				{
+					requestBuilder.header("Content-Encoding", "gzip");
+				}
+			}
+			Request request = requestBuilder.build();
+
+			callRegistry.enqueue(httpClient.newCall(request), CallRegistry.Purpose.SUBMIT, gameState.event_key, future, new Callback()
 			{
 				@Override
 				public void onFailure(Call call, IOException e)
 				{
 					log.error("API request failed", e);
-					future.complete(ApiResponse.error("Network error: " + e.getMessage()));
+					future.complete(ApiResponse.errorWithType("NETWORK_ERROR", "Network error: " + e.getMessage()));
 				}
 
 				@Override
@@ -68,32 +462,46 @@ public class ApiClient
 				{
 					try (response)
 					{
-						String responseBody = response.body() != null ? response.body().string() : "";
-						log.debug("API response code: {}, body: {}", response.code(), responseBody);
+						recordAcceptedFormats(response);
+
+						if (encoded != null && response.code() == 415)
+						{
+							// Server stopped accepting the binary format - resend as JSON
+							log.info("Server rejected binary submission, falling back to JSON");
+							binaryAccepted = false;
+							submitGuess(gameState, false, future);
+							return;
+						}
 
 						if (response.isSuccessful())
 						{
 							try
 							{
-								ApiResponse apiResponse = gson.fromJson(responseBody, ApiResponse.class);
+								ApiResponse apiResponse = readJson(response, WireAdapters.API_RESPONSE);
+								log.debug("API response code: {}, message: {}", response.code(), apiResponse.message);
 								future.complete(apiResponse);
 							}
-							catch (JsonSyntaxException e)
+							catch (JsonParseException e)
 							{
 								log.error("Failed to parse API response JSON", e);
-								future.complete(ApiResponse.error("Invalid response format"));
+								future.complete(ApiResponse.errorWithType("PARSE_ERROR", "Invalid response format"));
 							}
 						}
 						else
 						{
-							String errorMessage = String.format("Server error %d: %s", response.code(), responseBody);
-							future.complete(ApiResponse.error(errorMessage));
+							String errorBody = readErrorBody(response);
+							log.debug("API response code: {}, body: {}", response.code(), errorBody);
+
+							// 5xx and 429 are worth retrying, anything else means the server rejected the guess
+							String errorType = (response.code() >= 500 || response.code() == 429) ? "SERVER_ERROR" : "REJECTED";
+							String errorMessage = String.format("Server error %d: %s", response.code(), errorBody);
+							future.complete(ApiResponse.errorWithType(errorType, errorMessage));
 						}
 					}
 					catch (IOException e)
 					{
 						log.error("Failed to read response body", e);
-						future.complete(ApiResponse.error("Failed to read server response"));
+						future.complete(ApiResponse.errorWithType("IO_ERROR", "Failed to read server response"));
 					}
 				}
 			});
@@ -101,13 +509,182 @@ public class ApiClient
 		catch (Exception e)
 		{
 			log.error("Failed to create API request", e);
-			future.complete(ApiResponse.error("Request creation failed: " + e.getMessage()));
+			future.complete(ApiResponse.errorWithType("REQUEST_ERROR", "Request creation failed: " + e.getMessage()));
 		}
+	}
 
+	// Runs a request through the endpoint's circuit breaker and the shared concurrency limit
+	private CompletableFuture<ApiResponse> guard(CircuitBreaker breaker, Supplier<CompletableFuture<ApiResponse>> call)
+	{
+		return guard(breaker, call, ApiClient::isTransportFailure, rejection -> rejection);
+	}
+
+	private <T> CompletableFuture<T> guard(CircuitBreaker breaker, Supplier<CompletableFuture<T>> call,
+		Predicate<T> isFailure, Function<ApiResponse, T> rejected)
+	{
+		if (!breaker.allowRequest())
+		{
+			long retrySeconds = Math.max(1, breaker.getRetryAfterMillis() / 1000);
+			return CompletableFuture.completedFuture(rejected.apply(ApiResponse.errorWithType("CIRCUIT_OPEN",
+				"Server unavailable, next attempt in " + retrySeconds + "s")));
+		}
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+		boolean accepted = concurrencyLimiter.acquire(() -> {
+			if (future.isDone())
+			{
+				// Cancelled while waiting for a slot
+				breaker.releaseUnused();
+				concurrencyLimiter.releaseUnused();
+				return;
+			}
+
+			long start = System.nanoTime();
+			CompletableFuture<T> request = call.get();
+			future.whenComplete((result, error) -> {
+				if (future.isCancelled())
+				{
+					request.cancel(false);
+				}
+			});
+
+			request.whenComplete((result, error) -> {
+				if (request.isCancelled())
+				{
+					// A cancelled request says nothing about the server's health
+					breaker.releaseUnused();
+					concurrencyLimiter.releaseUnused();
+					future.cancel(false);
+					return;
+				}
+
+				boolean failed = error != null || isFailure.test(result);
+				if (failed)
+				{
+					breaker.recordFailure();
+				}
+				else
+				{
+					breaker.recordSuccess();
+				}
+				concurrencyLimiter.release(System.nanoTime() - start, failed);
+
+				if (error != null)
+				{
+					future.completeExceptionally(error);
+				}
+				else
+				{
+					future.complete(result);
+				}
+			});
+		});
+
+		if (!accepted)
+		{
+			breaker.releaseUnused();
+			future.complete(rejected.apply(ApiResponse.errorWithType("OVERLOADED", "Too many requests in progress, try again shortly")));
+		}
 		return future;
 	}
 
+	private static boolean isTransportFailure(ApiResponse response)
+	{
+		if (response.errorType == null)
+		{
+			return false;
+		}
+
+		switch (response.errorType)
+		{
+			case "NETWORK_ERROR":
+			case "IO_ERROR":
+			case "SERVER_ERROR":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static byte[] encodeBinary(GameStateSubmission gameState)
+	{
+		try
+		{
+			return GameStateCodec.encode(gameState);
+		}
+		catch (IllegalArgumentException e)
+		{
+			log.debug("Game state cannot be binary encoded, sending JSON", e);
+			return null;
+		}
+	}
+
+	// The server lists the request formats it understands in Accept-Post
+	private void recordAcceptedFormats(Response response)
+	{
+		String acceptPost = response.header("Accept-Post");
+		if (acceptPost != null && acceptPost.contains(GameStateCodec.MEDIA_TYPE))
+		{
+			binaryAccepted = true;
+		}
+	}
+
+	// Parses a successful response straight off the connection instead of buffering it as a string first
+	private static <T> T readJson(Response response, TypeAdapter<T> adapter) throws IOException
+	{
+		ResponseBody body = response.body();
+		if (body == null || body.contentLength() > MAX_RESPONSE_CHARS)
+		{
+			throw new JsonParseException("Missing or oversized response body");
+		}
+
+		try (JsonReader reader = new JsonReader(new BoundedReader(body.charStream(), MAX_RESPONSE_CHARS)))
+		{
+			reader.setLenient(true);
+			T value = adapter.read(reader);
+			if (value == null)
+			{
+				throw new JsonParseException("Empty response body");
+			}
+			return value;
+		}
+		catch (MalformedJsonException | EOFException | IllegalStateException | NumberFormatException e)
+		{
+			throw new JsonParseException(e);
+		}
+	}
+
+	// Only the start of an error body is useful in a message, so never read more than that
+	private static String readErrorBody(Response response) throws IOException
+	{
+		ResponseBody body = response.body();
+		if (body == null)
+		{
+			return "";
+		}
+
+		char[] buffer = new char[MAX_ERROR_MESSAGE_CHARS];
+		int length = 0;
+		Reader reader = body.charStream();
+		int read;
+		while (length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) != -1)
+		{
+			length += read;
+		}
+		return new String(buffer, 0, length);
+	}
+
 	public CompletableFuture<ApiResponse> validateEventKey(String eventKey)
+	{
+		return validationCache.get(eventKey, key -> guard(validateBreaker, () -> requestEventKeyValidation(key)));
+	}
+
+	public void invalidateEventKey(String eventKey)
+	{
+		validationCache.invalidate(eventKey);
+	}
+
+	private CompletableFuture<ApiResponse> requestEventKeyValidation(String eventKey)
 	{
 		CompletableFuture<ApiResponse> future = new CompletableFuture<>();
 
@@ -117,11 +694,11 @@ public class ApiClient
 
 			String encodedEventKey = URLEncoder.encode(eventKey, StandardCharsets.UTF_8);
 			Request request = new Request.Builder()
-				.url(API_BASE_URL + VALIDATE_KEY_ENDPOINT + "/" + encodedEventKey)
+				.url(baseUrl() + VALIDATE_KEY_ENDPOINT + "/" + encodedEventKey)
 				.get()
 				.build();
 
-			httpClient.newCall(request).enqueue(new Callback()
+			callRegistry.enqueue(httpClient.newCall(request), CallRegistry.Purpose.VALIDATE, eventKey, future, new Callback()
 			{
 				@Override
 				public void onFailure(Call call, IOException e)
@@ -135,17 +712,15 @@ public class ApiClient
 				{
 					try (response)
 					{
-						String responseBody = response.body() != null ? response.body().string() : "";
-						log.debug("Event key validation response code: {}, body: {}", response.code(), responseBody);
-
 						if (response.isSuccessful())
 						{
 							try
 							{
-								ApiResponse apiResponse = gson.fromJson(responseBody, ApiResponse.class);
+								ApiResponse apiResponse = readJson(response, WireAdapters.API_RESPONSE);
+								log.debug("Event key validation response code: {}, message: {}", response.code(), apiResponse.message);
 								future.complete(apiResponse);
 							}
-							catch (JsonSyntaxException e)
+							catch (JsonParseException e)
 							{
 								log.error("Failed to parse event key validation response JSON", e);
 								future.complete(ApiResponse.errorWithType("PARSE_ERROR", "Invalid response format"));
@@ -159,7 +734,7 @@ public class ApiClient
 						else
 						{
 							// Any other HTTP error (500, 503, etc.)
-							log.error("Server error response: {} - {}", response.code(), responseBody);
+							log.error("Server error response: {} - {}", response.code(), readErrorBody(response));
 							future.complete(ApiResponse.errorWithType("SERVER_ERROR", "Server error: " + response.code()));
 						}
 					}
@@ -191,6 +766,10 @@ public class ApiClient
 		public String interaction_type;
 		public String event_key;
 		public String rsn;
+		// Every trigger from the same game tick, only set when there was more than one
+		public List<TriggerData> triggers;
+		// Same for every resend of this submission, so the server can answer a duplicate without judging it twice
+		public String request_id;
 
 		public GameStateSubmission(LocationData location, List<ItemData> inventory, 
 			List<ItemData> wornItems, Integer emoteId, Integer npcId, 
@@ -205,6 +784,49 @@ public class ApiClient
 			this.event_key = eventKey;
 			this.rsn = rsn;
 		}
+
+		// The same state as a new submission, for when the player deliberately sends it again
+		public GameStateSubmission copyForResubmit()
+		{
+			GameStateSubmission copy = new GameStateSubmission(location, inventory, worn_items, emote_id, npc_id,
+				interaction_type, event_key, rsn);
+			copy.triggers = triggers;
+			return copy;
+		}
+	}
+
+	public static class TriggerData
+	{
+		public String type;
+		public Integer emote_id;
+		public Integer npc_id;
+		public String interaction_type;
+		// Game object, item or widget id for triggers that are not emotes or NPC options
+		public Integer target_id;
+
+		public TriggerData(String type, Integer emoteId, Integer npcId, String interactionType, Integer targetId)
+		{
+			this.type = type;
+			this.emote_id = emoteId;
+			this.npc_id = npcId;
+			this.interaction_type = interactionType;
+			this.target_id = targetId;
+		}
+	}
+
+	public static class BatchSubmission
+	{
+		public List<GameStateSubmission> submissions;
+
+		public BatchSubmission(List<GameStateSubmission> submissions)
+		{
+			this.submissions = submissions;
+		}
+	}
+
+	public static class BatchResponse
+	{
+		public List<ApiResponse> results;
 	}
 
 	public static class LocationData
@@ -264,6 +886,10 @@ public class ApiClient
 		public boolean success;
 		public String message;
 		public String errorType; // For client-side error handling
+		// Only on event key validation: the trigger sources the event uses, or null for the defaults
+		public List<String> triggerSources;
+		// Only on event key validation: areas whose entry or exit triggers a capture, or null for none
+		public List<LocationConstraint> zones;
 
 		public ApiResponse(boolean success, String message)
 		{
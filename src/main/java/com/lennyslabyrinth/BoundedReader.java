@@ -0,0 +1,59 @@
+package com.lennyslabyrinth;
+
+import com.google.gson.JsonParseException;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+// Stops reading a response once it grows past a size limit, so a misbehaving server cannot fill memory
+class BoundedReader extends FilterReader
+{
+	private final long maxChars;
+	private long readChars;
+
+	BoundedReader(Reader in, long maxChars)
+	{
+		super(in);
+		this.maxChars = maxChars;
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		int c = super.read();
+		if (c != -1)
+		{
+			count(1);
+		}
+		return c;
+	}
+
+	@Override
+	public int read(char[] buffer, int offset, int length) throws IOException
+	{
+		int read = super.read(buffer, offset, length);
+		if (read > 0)
+		{
+			count(read);
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		long skipped = super.skip(n);
+		count(skipped);
+		return skipped;
+	}
+
+	private void count(long chars)
+	{
+		readChars += chars;
+		if (readChars > maxChars)
+		{
+			throw new JsonParseException("Response body exceeds " + maxChars + " characters");
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.lennyslabyrinth;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+// Tracks the API calls in flight so they can be cancelled by event key and purpose, or all at once on shutdown.
+// Each call is tied to the future that receives its result: cancelling the future cancels the socket work,
+// and callbacks for a cancelled future are dropped instead of reaching the UI.
+@Slf4j
+class CallRegistry
+{
+	enum Purpose
+	{
+		SUBMIT,
+		VALIDATE,
+		WARM_UP
+	}
+
+	private static class TrackedCall
+	{
+		final Call call;
+		final Purpose purpose;
+		final String eventKey;
+		final CompletableFuture<?> future;
+
+		TrackedCall(Call call, Purpose purpose, String eventKey, CompletableFuture<?> future)
+		{
+			this.call = call;
+			this.purpose = purpose;
+			this.eventKey = eventKey;
+			this.future = future;
+		}
+	}
+
+	private final Set<TrackedCall> calls = ConcurrentHashMap.newKeySet();
+
+	// eventKey may be null for calls that are not made on behalf of a single key
+	void enqueue(Call call, Purpose purpose, String eventKey, CompletableFuture<?> future, Callback callback)
+	{
+		TrackedCall tracked = new TrackedCall(call, purpose, eventKey, future);
+		calls.add(tracked);
+		future.whenComplete((result, error) -> {
+			calls.remove(tracked);
+			if (future.isCancelled())
+			{
+				call.cancel();
+			}
+		});
+
+		if (future.isDone())
+		{
+			return;
+		}
+
+		call.enqueue(new Callback()
+		{
+			@Override
+			public void onFailure(Call call, IOException e)
+			{
+				if (future.isCancelled())
+				{
+					log.debug("Cancelled {} request for '{}'", purpose, eventKey);
+					return;
+				}
+				callback.onFailure(call, e);
+			}
+
+			@Override
+			public void onResponse(Call call, Response response) throws IOException
+			{
+				if (future.isCancelled())
+				{
+					response.close();
+					return;
+				}
+				callback.onResponse(call, response);
+			}
+		});
+	}
+
+	int cancel(Purpose purpose, String eventKey)
+	{
+		return cancelMatching(tracked -> tracked.purpose == purpose && Objects.equals(tracked.eventKey, eventKey));
+	}
+
+	int cancelAll()
+	{
+		return cancelMatching(tracked -> true);
+	}
+
+	int size()
+	{
+		return calls.size();
+	}
+
+	private int cancelMatching(Predicate<TrackedCall> filter)
+	{
+		int cancelled = 0;
+		for (TrackedCall tracked : calls)
+		{
+			if (filter.test(tracked) && tracked.future.cancel(false))
+			{
+				cancelled++;
+			}
+		}
+		return cancelled;
+	}
+}
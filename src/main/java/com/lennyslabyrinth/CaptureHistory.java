@@ -0,0 +1,187 @@
+package com.lennyslabyrinth;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Fixed-size ring of the most recent submissions and their outcomes. The slots are allocated once up front
+// and reused, so memory stays constant however long the plugin runs.
+public class CaptureHistory
+{
+	public static final int CAPACITY = 20;
+
+	private final Entry[] entries = new Entry[CAPACITY];
+	private long nextId = 1;
+	private Runnable listener;
+
+	private static class Entry
+	{
+		long id;
+		long capturedAt;
+		String trigger;
+		ApiClient.GameStateSubmission submission;
+		boolean pending;
+		boolean success;
+		String message;
+		String errorType;
+	}
+
+	// Immutable copy of one entry for the UI
+	public static final class Record
+	{
+		public final long id;
+		public final long capturedAt;
+		public final String trigger;
+		public final String eventKey;
+		public final boolean pending;
+		public final boolean success;
+		public final String message;
+		public final String errorType;
+		final ApiClient.GameStateSubmission submission;
+
+		private Record(Entry entry)
+		{
+			this.id = entry.id;
+			this.capturedAt = entry.capturedAt;
+			this.trigger = entry.trigger;
+			this.eventKey = entry.submission.event_key;
+			this.pending = entry.pending;
+			this.success = entry.success;
+			this.message = entry.message;
+			this.errorType = entry.errorType;
+			this.submission = entry.submission;
+		}
+	}
+
+	public CaptureHistory()
+	{
+		for (int i = 0; i < CAPACITY; i++)
+		{
+			entries[i] = new Entry();
+		}
+	}
+
+	// Called whenever an entry is added or its outcome changes, on whichever thread made the change
+	public synchronized void setListener(Runnable listener)
+	{
+		this.listener = listener;
+	}
+
+	// Records a submission that is about to be sent, replacing the oldest entry, and returns its id
+	long record(ApiClient.GameStateSubmission submission, String trigger)
+	{
+		long id;
+		synchronized (this)
+		{
+			id = nextId++;
+			Entry entry = entries[(int) (id % CAPACITY)];
+			entry.id = id;
+			entry.capturedAt = System.currentTimeMillis();
+			entry.trigger = trigger;
+			entry.submission = submission;
+			entry.pending = true;
+			entry.success = false;
+			entry.message = null;
+			entry.errorType = null;
+		}
+		notifyListener();
+		return id;
+	}
+
+	void markPending(long id)
+	{
+		synchronized (this)
+		{
+			Entry entry = find(id);
+			if (entry == null)
+			{
+				return;
+			}
+			entry.pending = true;
+		}
+		notifyListener();
+	}
+
+	void recordOutcome(long id, ApiClient.ApiResponse response)
+	{
+		synchronized (this)
+		{
+			Entry entry = find(id);
+			if (entry == null)
+			{
+				// Already pushed out of the ring by newer captures
+				return;
+			}
+			entry.pending = false;
+			entry.success = response.success;
+			entry.message = response.message;
+			entry.errorType = response.errorType;
+		}
+		notifyListener();
+	}
+
+	synchronized ApiClient.GameStateSubmission getSubmission(long id)
+	{
+		Entry entry = find(id);
+		return entry != null ? entry.submission : null;
+	}
+
+	// Newest first
+	public synchronized List<Record> getRecords()
+	{
+		List<Record> records = new ArrayList<>(CAPACITY);
+		for (long id = nextId - 1; id >= 1 && id >= nextId - CAPACITY; id--)
+		{
+			records.add(new Record(entries[(int) (id % CAPACITY)]));
+		}
+		return records;
+	}
+
+	// Writes every entry, oldest first, as a JSON array using the same field names as the API
+	public void export(Writer out) throws IOException
+	{
+		List<Record> records = getRecords();
+		JsonWriter writer = WireAdapters.GSON.newJsonWriter(out);
+		writer.setIndent("  ");
+		writer.beginArray();
+		for (int i = records.size() - 1; i >= 0; i--)
+		{
+			Record record = records.get(i);
+			writer.beginObject();
+			writer.name("captured_at").value(record.capturedAt);
+			writer.name("trigger").value(record.trigger);
+			writer.name("pending").value(record.pending);
+			writer.name("success").value(record.success);
+			writer.name("message").value(record.message);
+			writer.name("error_type").value(record.errorType);
+			writer.name("submission");
+			WireAdapters.GAME_STATE_SUBMISSION.write(writer, record.submission);
+			writer.endObject();
+		}
+		writer.endArray();
+		writer.flush();
+	}
+
+	private Entry find(long id)
+	{
+		Entry entry = entries[(int) (id % CAPACITY)];
+		return entry.id == id ? entry : null;
+	}
+
+	private void notifyListener()
+	{
+		Runnable current;
+		synchronized (this)
+		{
+			current = listener;
+		}
+
+		if (current != null)
+		{
+			current.run();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package com.lennyslabyrinth;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Mutable, primitive-only record of one capture, reused through CaptureSnapshotPool so that filling it on
+// the client thread allocates nothing. Items are held as references to the immutable container snapshots.
+// Only a capture that is actually going to be sent is turned into a GameStateSubmission.
+// A capture collects every trigger from one game tick; the first one is the primary trigger.
+final class CaptureSnapshot
+{
+	static final int NONE = -1;
+	static final int MAX_TRIGGERS = 8;
+
+	int worldX;
+	int worldY;
+	int plane;
+	int sceneX;
+	int sceneY;
+	String eventKey;
+	String rsn;
+	ContainerSnapshotCache.Snapshot inventory = ContainerSnapshotCache.Snapshot.EMPTY;
+	ContainerSnapshotCache.Snapshot equipment = ContainerSnapshotCache.Snapshot.EMPTY;
+
+	int triggerCount;
+	final String[] triggers = new String[MAX_TRIGGERS];
+	final int[] emoteIds = new int[MAX_TRIGGERS];
+	final int[] npcIds = new int[MAX_TRIGGERS];
+	final String[] interactionTypes = new String[MAX_TRIGGERS];
+	final int[] targetIds = new int[MAX_TRIGGERS];
+
+	// Returns false if the tick already holds as many triggers as one submission carries
+	boolean addTrigger(String trigger, int emoteId, int npcId, int targetId, String interactionType)
+	{
+		if (triggerCount == MAX_TRIGGERS)
+		{
+			return false;
+		}
+
+		triggers[triggerCount] = trigger;
+		emoteIds[triggerCount] = emoteId;
+		npcIds[triggerCount] = npcId;
+		interactionTypes[triggerCount] = interactionType;
+		targetIds[triggerCount] = targetId;
+		triggerCount++;
+		return true;
+	}
+
+	// A manual submission anywhere in the tick takes the manual rate limit budget
+	String primaryTrigger()
+	{
+		for (int i = 0; i < triggerCount; i++)
+		{
+			if (SubmissionRateLimiter.MANUAL_TRIGGER.equals(triggers[i]))
+			{
+				return triggers[i];
+			}
+		}
+		return triggers[0];
+	}
+
+	// The top-level fields keep their single-trigger meaning: the first emote and the first NPC interaction
+	int primaryEmoteId()
+	{
+		for (int i = 0; i < triggerCount; i++)
+		{
+			if (emoteIds[i] != NONE)
+			{
+				return emoteIds[i];
+			}
+		}
+		return NONE;
+	}
+
+	int primaryNpcIndex()
+	{
+		for (int i = 0; i < triggerCount; i++)
+		{
+			if (npcIds[i] != NONE)
+			{
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	// The top-level fields have no room for target ids, so those captures always carry the trigger list
+	boolean hasTriggerList()
+	{
+		if (triggerCount > 1)
+		{
+			return true;
+		}
+		return triggerCount == 1 && targetIds[0] != NONE;
+	}
+
+	ApiClient.GameStateSubmission toSubmission()
+	{
+		ApiClient.LocationData location = new ApiClient.LocationData(
+			new ApiClient.WorldCoords(worldX, worldY, plane),
+			new ApiClient.LocalCoords(sceneX, sceneY));
+
+		int emoteId = primaryEmoteId();
+		int npcIndex = primaryNpcIndex();
+		ApiClient.GameStateSubmission submission = new ApiClient.GameStateSubmission(location, inventory.items, equipment.items,
+			emoteId != NONE ? emoteId : null,
+			npcIndex != NONE ? npcIds[npcIndex] : null,
+			npcIndex != NONE ? interactionTypes[npcIndex] : null,
+			eventKey, rsn);
+
+		if (hasTriggerList())
+		{
+			List<ApiClient.TriggerData> triggerData = new ArrayList<>(triggerCount);
+			for (int i = 0; i < triggerCount; i++)
+			{
+				triggerData.add(new ApiClient.TriggerData(triggers[i],
+					emoteIds[i] != NONE ? emoteIds[i] : null,
+					npcIds[i] != NONE ? npcIds[i] : null,
+					interactionTypes[i],
+					targetIds[i] != NONE ? targetIds[i] : null));
+			}
+			submission.triggers = triggerData;
+		}
+		return submission;
+	}
+
+	void clear()
+	{
+		worldX = 0;
+		worldY = 0;
+		plane = 0;
+		sceneX = 0;
+		sceneY = 0;
+		eventKey = null;
+		rsn = null;
+		inventory = ContainerSnapshotCache.Snapshot.EMPTY;
+		equipment = ContainerSnapshotCache.Snapshot.EMPTY;
+
+		for (int i = 0; i < triggerCount; i++)
+		{
+			triggers[i] = null;
+			interactionTypes[i] = null;
+		}
+		triggerCount = 0;
+	}
+}
@@ -0,0 +1,32 @@
+package com.lennyslabyrinth;
+
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+
+// Small free list of capture snapshots. Captures are rare compared to frames, so a handful is enough;
+// if the pool runs dry a new snapshot is made and the extra one is dropped again on release.
+@Singleton
+public class CaptureSnapshotPool
+{
+	private static final int MAX_POOLED = 8;
+
+	private final ArrayDeque<CaptureSnapshot> free = new ArrayDeque<>(MAX_POOLED);
+
+	synchronized CaptureSnapshot acquire()
+	{
+		CaptureSnapshot snapshot = free.poll();
+		return snapshot != null ? snapshot : new CaptureSnapshot();
+	}
+
+	void release(CaptureSnapshot snapshot)
+	{
+		snapshot.clear();
+		synchronized (this)
+		{
+			if (free.size() < MAX_POOLED)
+			{
+				free.push(snapshot);
+			}
+		}
+	}
+}
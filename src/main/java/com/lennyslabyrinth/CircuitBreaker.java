@@ -0,0 +1,109 @@
+package com.lennyslabyrinth;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+// Stops calling an endpoint after repeated failures and probes it with a single request once the cooldown expires
+@Slf4j
+class CircuitBreaker
+{
+	private static final int FAILURE_THRESHOLD = 5;
+	private static final long INITIAL_COOLDOWN_MILLIS = TimeUnit.SECONDS.toMillis(15);
+	private static final long MAX_COOLDOWN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+	enum State
+	{
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	private final String name;
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long cooldownMillis = INITIAL_COOLDOWN_MILLIS;
+	private long openUntil;
+	private boolean trialInFlight;
+
+	CircuitBreaker(String name)
+	{
+		this.name = name;
+	}
+
+	synchronized boolean allowRequest()
+	{
+		switch (state)
+		{
+			case OPEN:
+				if (System.currentTimeMillis() < openUntil)
+				{
+					return false;
+				}
+				state = State.HALF_OPEN;
+				log.info("Circuit for {} is half-open, sending a trial request", name);
+				// fall through
+			case HALF_OPEN:
+				if (trialInFlight)
+				{
+					return false;
+				}
+				trialInFlight = true;
+				return true;
+			default:
+				return true;
+		}
+	}
+
+	synchronized void recordSuccess()
+	{
+		if (state != State.CLOSED)
+		{
+			log.info("Circuit for {} closed", name);
+		}
+		state = State.CLOSED;
+		consecutiveFailures = 0;
+		cooldownMillis = INITIAL_COOLDOWN_MILLIS;
+		trialInFlight = false;
+	}
+
+	synchronized void recordFailure()
+	{
+		consecutiveFailures++;
+		if (state == State.HALF_OPEN)
+		{
+			// Trial failed - stay open for longer this time
+			cooldownMillis = Math.min(MAX_COOLDOWN_MILLIS, cooldownMillis * 2);
+			open();
+		}
+		else if (state == State.CLOSED && consecutiveFailures >= FAILURE_THRESHOLD)
+		{
+			open();
+		}
+	}
+
+	// Gives back a request slot that was allowed but never sent
+	synchronized void releaseUnused()
+	{
+		trialInFlight = false;
+	}
+
+	synchronized State getState()
+	{
+		return state;
+	}
+
+	synchronized long getRetryAfterMillis()
+	{
+		return state == State.OPEN ? Math.max(0, openUntil - System.currentTimeMillis()) : 0;
+	}
+
+	private void open()
+	{
+		state = State.OPEN;
+		trialInFlight = false;
+		openUntil = System.currentTimeMillis() + cooldownMillis;
+		log.warn("Circuit for {} opened after {} consecutive failures, pausing requests for {} s",
+			name, consecutiveFailures, cooldownMillis / 1000);
+	}
+}
@@ -0,0 +1,118 @@
+package com.lennyslabyrinth;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+// AIMD limit on in-flight API requests. The limit grows slowly while latency stays near the best seen
+// and is cut back when requests fail or latency climbs, which is how an overloaded backend shows up first.
+@Slf4j
+class ConcurrencyLimiter
+{
+	private static final double MIN_LIMIT = 1;
+	private static final double MAX_LIMIT = 16;
+	private static final double INITIAL_LIMIT = 4;
+	private static final double BACKOFF_RATIO = 0.7;
+	private static final int MAX_QUEUED = 32;
+	private static final long MIN_CONGESTED_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+	private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+	private double limit = INITIAL_LIMIT;
+	private int inFlight;
+	private long baselineLatencyNanos = Long.MAX_VALUE;
+
+	// Returns false if the request was neither started nor queued and should be shed
+	boolean acquire(Runnable start)
+	{
+		synchronized (this)
+		{
+			if (inFlight >= (int) limit)
+			{
+				if (waiting.size() >= MAX_QUEUED)
+				{
+					return false;
+				}
+				waiting.add(start);
+				return true;
+			}
+			inFlight++;
+		}
+
+		start.run();
+		return true;
+	}
+
+	void release(long latencyNanos, boolean failed)
+	{
+		Runnable next;
+		synchronized (this)
+		{
+			adjustLimit(latencyNanos, failed);
+			next = releaseSlot();
+		}
+
+		if (next != null)
+		{
+			next.run();
+		}
+	}
+
+	// Frees the slot of a request that was cancelled, without counting it towards the limit
+	void releaseUnused()
+	{
+		Runnable next;
+		synchronized (this)
+		{
+			next = releaseSlot();
+		}
+
+		if (next != null)
+		{
+			next.run();
+		}
+	}
+
+	private Runnable releaseSlot()
+	{
+		inFlight--;
+		Runnable next = inFlight < (int) limit ? waiting.poll() : null;
+		if (next != null)
+		{
+			inFlight++;
+		}
+		return next;
+	}
+
+	synchronized int getLimit()
+	{
+		return (int) limit;
+	}
+
+	private void adjustLimit(long latencyNanos, boolean failed)
+	{
+		if (!failed)
+		{
+			// Let the baseline drift up slowly so a permanently slower route is not treated as congestion forever
+			baselineLatencyNanos = latencyNanos < baselineLatencyNanos
+				? latencyNanos
+				: baselineLatencyNanos + (latencyNanos - baselineLatencyNanos) / 64;
+		}
+
+		boolean congested = failed || latencyNanos > Math.max(2 * baselineLatencyNanos, MIN_CONGESTED_LATENCY_NANOS);
+		double previous = limit;
+		if (congested)
+		{
+			limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+		}
+		else
+		{
+			limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+		}
+
+		if ((int) previous != (int) limit)
+		{
+			log.debug("API concurrency limit changed from {} to {}", (int) previous, (int) limit);
+		}
+	}
+}
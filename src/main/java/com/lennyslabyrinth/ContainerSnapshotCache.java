@@ -0,0 +1,160 @@
+package com.lennyslabyrinth;
+
+import net.runelite.api.Client;
+import net.runelite.api.InventoryID;
+import net.runelite.api.Item;
+import net.runelite.api.ItemContainer;
+import net.runelite.api.events.ItemContainerChanged;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Keeps the inventory and equipment as ready-built, immutable item lists that are updated from
+// ItemContainerChanged, so a capture never scans containers itself. Captures between two container
+// changes share the same snapshot, and only slots that actually changed get new ItemData objects.
+@Singleton
+public class ContainerSnapshotCache
+{
+	@Inject
+	private Client client;
+
+	private volatile Snapshot inventory;
+	private volatile Snapshot equipment;
+
+	// Immutable view of one container. The version increases every time the contents change.
+	public static final class Snapshot
+	{
+		static final Snapshot EMPTY = new Snapshot(0, new ApiClient.ItemData[0], Collections.emptyList(), new int[0]);
+
+		public final long version;
+		public final List<ApiClient.ItemData> items;
+		// The same items as slot, id, quantity triples, for readers that want primitives. Never modified.
+		final int[] packed;
+		private final ApiClient.ItemData[] slots;
+
+		private Snapshot(long version, ApiClient.ItemData[] slots, List<ApiClient.ItemData> items, int[] packed)
+		{
+			this.version = version;
+			this.slots = slots;
+			this.items = items;
+			this.packed = packed;
+		}
+
+		// Returns this snapshot if nothing changed, otherwise a new one sharing the unchanged slots
+		Snapshot update(Item[] containerItems)
+		{
+			// Most events leave the contents as they were, so compare in place before allocating anything
+			if (matches(containerItems))
+			{
+				return this;
+			}
+
+			ApiClient.ItemData[] updated = new ApiClient.ItemData[containerItems.length];
+			int count = 0;
+			for (int i = 0; i < containerItems.length; i++)
+			{
+				Item item = containerItems[i];
+				if (item == null || item.getId() == -1)
+				{
+					continue;
+				}
+
+				ApiClient.ItemData previous = i < slots.length ? slots[i] : null;
+				updated[i] = isSame(previous, item) ? previous : new ApiClient.ItemData(i, item.getId(), item.getQuantity());
+				count++;
+			}
+
+			List<ApiClient.ItemData> items = new ArrayList<>(count);
+			int[] packed = new int[count * 3];
+			for (ApiClient.ItemData slot : updated)
+			{
+				if (slot != null)
+				{
+					packed[items.size() * 3] = slot.slot;
+					packed[items.size() * 3 + 1] = slot.id;
+					packed[items.size() * 3 + 2] = slot.quantity;
+					items.add(slot);
+				}
+			}
+			return new Snapshot(version + 1, updated, Collections.unmodifiableList(items), packed);
+		}
+
+		private boolean matches(Item[] containerItems)
+		{
+			if (containerItems.length != slots.length)
+			{
+				return false;
+			}
+
+			for (int i = 0; i < containerItems.length; i++)
+			{
+				Item item = containerItems[i];
+				boolean empty = item == null || item.getId() == -1;
+				if (empty ? slots[i] != null : !isSame(slots[i], item))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean isSame(ApiClient.ItemData previous, Item item)
+		{
+			return previous != null && previous.id == item.getId() && previous.quantity == item.getQuantity();
+		}
+	}
+
+	public void onItemContainerChanged(ItemContainerChanged event)
+	{
+		int containerId = event.getContainerId();
+		if (containerId == InventoryID.INVENTORY.getId())
+		{
+			inventory = refresh(inventory, event.getItemContainer());
+		}
+		else if (containerId == InventoryID.EQUIPMENT.getId())
+		{
+			equipment = refresh(equipment, event.getItemContainer());
+		}
+	}
+
+	// Called on logout and world hop so one account's items never leak into the next session
+	public void clear()
+	{
+		inventory = null;
+		equipment = null;
+	}
+
+	// Must be called on the client thread
+	public Snapshot getInventory()
+	{
+		Snapshot snapshot = inventory;
+		if (snapshot == null)
+		{
+			// No event seen yet, e.g. the plugin was enabled while logged in
+			snapshot = refresh(null, client.getItemContainer(InventoryID.INVENTORY));
+			inventory = snapshot;
+		}
+		return snapshot;
+	}
+
+	// Must be called on the client thread
+	public Snapshot getEquipment()
+	{
+		Snapshot snapshot = equipment;
+		if (snapshot == null)
+		{
+			snapshot = refresh(null, client.getItemContainer(InventoryID.EQUIPMENT));
+			equipment = snapshot;
+		}
+		return snapshot;
+	}
+
+	private static Snapshot refresh(Snapshot current, ItemContainer container)
+	{
+		Snapshot base = current != null ? current : Snapshot.EMPTY;
+		return container != null ? base.update(container.getItems()) : base.update(new Item[0]);
+	}
+}
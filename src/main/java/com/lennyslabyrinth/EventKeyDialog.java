@@ -7,6 +7,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class EventKeyDialog extends JDialog
@@ -19,6 +20,7 @@ public class EventKeyDialog extends JDialog
 	private final ApiClient apiClient;
 	private boolean submitted = false;
 	private boolean validating = false;
+	private CompletableFuture<ApiClient.ApiResponse> pendingValidation;
 
 	public EventKeyDialog(JFrame parent, String currentEventKey, boolean isChanging, Consumer<String> onEventKeySet, ApiClient apiClient)
 	{
@@ -151,7 +153,9 @@ public class EventKeyDialog extends JDialog
 		setButtonsEnabled(false);
 		setStatusMessage("Validating event key...", false);
 
-		apiClient.validateEventKey(eventKey).thenAccept(response -> {
+		CompletableFuture<ApiClient.ApiResponse> validation = apiClient.validateEventKey(eventKey);
+		pendingValidation = validation;
+		validation.thenAccept(response -> {
 			SwingUtilities.invokeLater(() -> {
 				validating = false;
 				setButtonsEnabled(true);
@@ -173,6 +177,11 @@ public class EventKeyDialog extends JDialog
 				}
 			});
 		}).exceptionally(throwable -> {
+			if (validation.isCancelled())
+			{
+				return null;
+			}
+
 			SwingUtilities.invokeLater(() -> {
 				validating = false;
 				setButtonsEnabled(true);
@@ -183,6 +192,18 @@ public class EventKeyDialog extends JDialog
 		});
 	}
 
+	@Override
+	public void dispose()
+	{
+		// Closing the dialog abandons the validation so its callback cannot touch a disposed dialog
+		if (pendingValidation != null)
+		{
+			pendingValidation.cancel(false);
+			pendingValidation = null;
+		}
+		super.dispose();
+	}
+
 	private String getUserFriendlyErrorMessage(ApiClient.ApiResponse response)
 	{
 		if (response.errorType != null)
@@ -194,6 +215,8 @@ public class EventKeyDialog extends JDialog
 				case "NETWORK_ERROR":
 				case "IO_ERROR":
 				case "REQUEST_ERROR":
+				case "CIRCUIT_OPEN":
+				case "OVERLOADED":
 					return "Can't reach the server";
 				case "SERVER_ERROR":
 				case "PARSE_ERROR":
@@ -0,0 +1,319 @@
+package com.lennyslabyrinth;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Compact binary encoding of GameStateSubmission, used instead of JSON when the server accepts it.
+//
+// Layout (version 1):
+//   magic 'L', version, presence flags
+//   location:   zigzag varint world x, y, varint plane, varint scene x, scene y
+//   containers: varint slot count, occupied-slot bitmap, then per occupied slot
+//               zigzag varint id delta from the previous id and varint quantity
+//   trigger:    zigzag varint emote id / npc id, length-prefixed UTF-8 strings
+public final class GameStateCodec
+{
+	public static final String MEDIA_TYPE = "application/x-lennys-state";
+
+	private static final byte MAGIC = 'L';
+	private static final byte VERSION = 1;
+
+	private static final int HAS_LOCATION = 1;
+	private static final int HAS_INVENTORY = 1 << 1;
+	private static final int HAS_WORN_ITEMS = 1 << 2;
+	private static final int HAS_EMOTE = 1 << 3;
+	private static final int HAS_NPC = 1 << 4;
+	private static final int HAS_INTERACTION = 1 << 5;
+	private static final int HAS_EVENT_KEY = 1 << 6;
+	private static final int HAS_RSN = 1 << 7;
+
+	private static final int MAX_SLOTS = 1024;
+
+	private GameStateCodec()
+	{
+	}
+
+	public static byte[] encode(ApiClient.GameStateSubmission submission)
+	{
+		if (submission.triggers != null)
+		{
+			// Version 1 has no room for a trigger list, so these go as JSON
+			throw new IllegalArgumentException("Multiple triggers cannot be binary encoded");
+		}
+
+		Writer out = new Writer(128);
+
+		int flags = 0;
+		flags |= submission.location != null && submission.location.world != null && submission.location.local != null ? HAS_LOCATION : 0;
+		flags |= submission.inventory != null ? HAS_INVENTORY : 0;
+		flags |= submission.worn_items != null ? HAS_WORN_ITEMS : 0;
+		flags |= submission.emote_id != null ? HAS_EMOTE : 0;
+		flags |= submission.npc_id != null ? HAS_NPC : 0;
+		flags |= submission.interaction_type != null ? HAS_INTERACTION : 0;
+		flags |= submission.event_key != null ? HAS_EVENT_KEY : 0;
+		flags |= submission.rsn != null ? HAS_RSN : 0;
+
+		out.writeByte(MAGIC);
+		out.writeByte(VERSION);
+		out.writeByte(flags);
+
+		if ((flags & HAS_LOCATION) != 0)
+		{
+			out.writeSignedVarint(submission.location.world.x);
+			out.writeSignedVarint(submission.location.world.y);
+			out.writeVarint(submission.location.world.plane);
+			out.writeVarint(submission.location.local.sceneX);
+			out.writeVarint(submission.location.local.sceneY);
+		}
+		if ((flags & HAS_INVENTORY) != 0)
+		{
+			writeContainer(out, submission.inventory);
+		}
+		if ((flags & HAS_WORN_ITEMS) != 0)
+		{
+			writeContainer(out, submission.worn_items);
+		}
+		if ((flags & HAS_EMOTE) != 0)
+		{
+			out.writeSignedVarint(submission.emote_id);
+		}
+		if ((flags & HAS_NPC) != 0)
+		{
+			out.writeSignedVarint(submission.npc_id);
+		}
+		if ((flags & HAS_INTERACTION) != 0)
+		{
+			out.writeString(submission.interaction_type);
+		}
+		if ((flags & HAS_EVENT_KEY) != 0)
+		{
+			out.writeString(submission.event_key);
+		}
+		if ((flags & HAS_RSN) != 0)
+		{
+			out.writeString(submission.rsn);
+		}
+
+		return out.toByteArray();
+	}
+
+	public static ApiClient.GameStateSubmission decode(byte[] data)
+	{
+		Reader in = new Reader(data);
+		if (in.readByte() != MAGIC)
+		{
+			throw new IllegalArgumentException("Not an encoded game state");
+		}
+		int version = in.readByte();
+		if (version != VERSION)
+		{
+			throw new IllegalArgumentException("Unsupported game state encoding version " + version);
+		}
+		int flags = in.readByte() & 0xff;
+
+		ApiClient.LocationData location = null;
+		if ((flags & HAS_LOCATION) != 0)
+		{
+			ApiClient.WorldCoords world = new ApiClient.WorldCoords(in.readSignedVarint(), in.readSignedVarint(), in.readVarint());
+			ApiClient.LocalCoords local = new ApiClient.LocalCoords(in.readVarint(), in.readVarint());
+			location = new ApiClient.LocationData(world, local);
+		}
+		List<ApiClient.ItemData> inventory = (flags & HAS_INVENTORY) != 0 ? readContainer(in) : null;
+		List<ApiClient.ItemData> wornItems = (flags & HAS_WORN_ITEMS) != 0 ? readContainer(in) : null;
+		Integer emoteId = (flags & HAS_EMOTE) != 0 ? in.readSignedVarint() : null;
+		Integer npcId = (flags & HAS_NPC) != 0 ? in.readSignedVarint() : null;
+		String interactionType = (flags & HAS_INTERACTION) != 0 ? in.readString() : null;
+		String eventKey = (flags & HAS_EVENT_KEY) != 0 ? in.readString() : null;
+		String rsn = (flags & HAS_RSN) != 0 ? in.readString() : null;
+
+		if (in.remaining() != 0)
+		{
+			throw new IllegalArgumentException("Trailing bytes after encoded game state");
+		}
+
+		return new ApiClient.GameStateSubmission(location, inventory, wornItems, emoteId, npcId, interactionType, eventKey, rsn);
+	}
+
+	private static void writeContainer(Writer out, List<ApiClient.ItemData> items)
+	{
+		// Sort by slot so the bitmap order and the id deltas agree
+		ApiClient.ItemData[] sorted = items.toArray(new ApiClient.ItemData[0]);
+		Arrays.sort(sorted, (a, b) -> Integer.compare(a.slot, b.slot));
+
+		int slotCount = sorted.length == 0 ? 0 : sorted[sorted.length - 1].slot + 1;
+		if (sorted.length > 0 && (sorted[0].slot < 0 || slotCount > MAX_SLOTS))
+		{
+			throw new IllegalArgumentException("Item slot out of range");
+		}
+
+		byte[] bitmap = new byte[(slotCount + 7) / 8];
+		for (ApiClient.ItemData item : sorted)
+		{
+			int mask = 1 << (item.slot & 7);
+			if ((bitmap[item.slot >> 3] & mask) != 0)
+			{
+				throw new IllegalArgumentException("Duplicate item slot " + item.slot);
+			}
+			bitmap[item.slot >> 3] |= mask;
+		}
+
+		out.writeVarint(slotCount);
+		out.writeBytes(bitmap);
+
+		int previousId = 0;
+		for (ApiClient.ItemData item : sorted)
+		{
+			out.writeSignedVarint(item.id - previousId);
+			out.writeVarint(item.quantity);
+			previousId = item.id;
+		}
+	}
+
+	private static List<ApiClient.ItemData> readContainer(Reader in)
+	{
+		int slotCount = in.readVarint();
+		if (slotCount < 0 || slotCount > MAX_SLOTS)
+		{
+			throw new IllegalArgumentException("Item slot count out of range");
+		}
+
+		byte[] bitmap = in.readBytes((slotCount + 7) / 8);
+		List<ApiClient.ItemData> items = new ArrayList<>();
+		int previousId = 0;
+		for (int slot = 0; slot < slotCount; slot++)
+		{
+			if ((bitmap[slot >> 3] & (1 << (slot & 7))) != 0)
+			{
+				int id = previousId + in.readSignedVarint();
+				items.add(new ApiClient.ItemData(slot, id, in.readVarint()));
+				previousId = id;
+			}
+		}
+		return items;
+	}
+
+	private static final class Writer
+	{
+		private byte[] buffer;
+		private int size;
+
+		Writer(int capacity)
+		{
+			buffer = new byte[capacity];
+		}
+
+		void writeByte(int value)
+		{
+			ensureCapacity(1);
+			buffer[size++] = (byte) value;
+		}
+
+		void writeBytes(byte[] bytes)
+		{
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, buffer, size, bytes.length);
+			size += bytes.length;
+		}
+
+		// Unsigned LEB128 over the 32 bits of the value
+		void writeVarint(int value)
+		{
+			ensureCapacity(5);
+			while ((value & ~0x7f) != 0)
+			{
+				buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			buffer[size++] = (byte) value;
+		}
+
+		void writeSignedVarint(int value)
+		{
+			writeVarint((value << 1) ^ (value >> 31));
+		}
+
+		void writeString(String value)
+		{
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			writeBytes(bytes);
+		}
+
+		byte[] toByteArray()
+		{
+			return Arrays.copyOf(buffer, size);
+		}
+
+		private void ensureCapacity(int extra)
+		{
+			if (size + extra > buffer.length)
+			{
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+			}
+		}
+	}
+
+	private static final class Reader
+	{
+		private final byte[] data;
+		private int position;
+
+		Reader(byte[] data)
+		{
+			this.data = data;
+		}
+
+		byte readByte()
+		{
+			if (position >= data.length)
+			{
+				throw new IllegalArgumentException("Truncated game state");
+			}
+			return data[position++];
+		}
+
+		byte[] readBytes(int length)
+		{
+			if (length > data.length - position)
+			{
+				throw new IllegalArgumentException("Truncated game state");
+			}
+			byte[] bytes = Arrays.copyOfRange(data, position, position + length);
+			position += length;
+			return bytes;
+		}
+
+		int readVarint()
+		{
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7)
+			{
+				byte b = readByte();
+				value |= (b & 0x7f) << shift;
+				if ((b & 0x80) == 0)
+				{
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Malformed varint");
+		}
+
+		int readSignedVarint()
+		{
+			int raw = readVarint();
+			return (raw >>> 1) ^ -(raw & 1);
+		}
+
+		String readString()
+		{
+			return new String(readBytes(readVarint()), StandardCharsets.UTF_8);
+		}
+
+		int remaining()
+		{
+			return data.length - position;
+		}
+	}
+}
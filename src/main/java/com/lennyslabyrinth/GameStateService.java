@@ -1,17 +1,29 @@
 package com.lennyslabyrinth;
 
+import com.lennyslabyrinth.triggers.Trigger;
+import com.lennyslabyrinth.triggers.TriggerRegistry;
+import com.lennyslabyrinth.triggers.ZoneTracker;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
+import net.runelite.api.GameState;
 import net.runelite.api.Player;
-import net.runelite.api.coords.LocalPoint;
 import net.runelite.api.coords.WorldPoint;
 import net.runelite.client.callback.ClientThread;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Singleton
@@ -35,17 +47,107 @@ public class GameStateService
 	@Inject
 	private CelebrationManager celebrationManager;
 
+	@Inject
+	private SubmissionOutbox submissionOutbox;
+
+	@Inject
+	private SubmissionCoalescer submissionCoalescer;
+
+	@Inject
+	private SubmissionRateLimiter submissionRateLimiter;
+
+	@Inject
+	private CaptureSnapshotPool captureSnapshotPool;
+
+	@Inject
+	private TriggerRegistry triggerRegistry;
+
+	@Inject
+	private ZoneTracker zoneTracker;
+
+	private static final int MAX_QUEUED_CAPTURES = 32;
+	private static final ApiClient.ApiResponse RATE_LIMITED = ApiClient.ApiResponse.errorWithType("RATE_LIMITED", "Too many submissions");
+
 	private LennysLabyrinthPanel panel;
 	private AnswerBuilderPanel answerBuilderPanel;
 	
+	private volatile ExecutorService submissionExecutor;
+
+	// Recent submissions and their outcomes, shown in the panel
+	private final CaptureHistory captureHistory = new CaptureHistory();
+
+	// Triggers seen since the last game tick, client thread only
+	private CaptureSnapshot tickCapture;
+	private final ZoneTracker.Listener zoneListener = this::onZoneTransition;
+
 	// Event key management
-	private String currentEventKey = "";
+	private volatile String currentEventKey = "";
+
+	public void startUp()
+	{
+		submissionExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(MAX_QUEUED_CAPTURES), r -> {
+				Thread thread = new Thread(r, "lennys-labyrinth-submit");
+				thread.setDaemon(true);
+				return thread;
+			});
+		submissionRateLimiter.start();
+		submissionOutbox.start(new SubmissionOutbox.Listener()
+		{
+			@Override
+			public void onRetryScheduled(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse lastError, long delayMillis)
+			{
+				if (panel != null && isCurrentEventKey(submission.event_key))
+				{
+					panel.updateStatusLabel(String.format(
+						"<html><center>Connection problem<br/>Retrying in %ds...<br/>Event: %s</center></html>",
+						Math.max(1, delayMillis / 1000),
+						submission.event_key
+					));
+				}
+			}
+
+			@Override
+			public void onRecoveredDelivery(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse response)
+			{
+				log.info("Delivered saved submission for '{}': {}", submission.event_key, response.message);
+				handleApiResponse(response, submission.event_key);
+			}
+		});
+	}
+
+	public void shutDown()
+	{
+		// Unsent submissions are already journaled, so nothing in flight needs to finish
+		ExecutorService executor = submissionExecutor;
+		submissionExecutor = null;
+		if (executor != null)
+		{
+			executor.shutdownNow();
+		}
+
+		apiClient.shutDownChannel();
+		// Before the outbox, which journals what the limiter was still holding back
+		submissionRateLimiter.stop();
+		submissionOutbox.stop();
+		apiClient.cancelAll();
+	}
 
 	public void setPanel(LennysLabyrinthPanel panel)
 	{
 		this.panel = panel;
 	}
 
+	public void setAnswerBuilderPanel(AnswerBuilderPanel answerBuilderPanel)
+	{
+		this.answerBuilderPanel = answerBuilderPanel;
+	}
+
+	public CaptureHistory getCaptureHistory()
+	{
+		return captureHistory;
+	}
+
 	public String getEventKey()
 	{
 		return currentEventKey;
@@ -53,7 +155,24 @@ public class GameStateService
 
 	public void setEventKey(String eventKey)
 	{
+		String previousEventKey = currentEventKey;
 		this.currentEventKey = (eventKey != null) ? eventKey.trim() : "";
+		if (!previousEventKey.isEmpty() && !previousEventKey.equals(currentEventKey))
+		{
+			apiClient.cancelRequests(previousEventKey);
+		}
+		triggerRegistry.setEnabledSources(null);
+		zoneTracker.setZones(null);
+		if (hasEventKey())
+		{
+			apiClient.warmUp();
+			apiClient.openChannel(currentEventKey, this::handleEventUpdate);
+			applyTriggerSources(currentEventKey);
+		}
+		else
+		{
+			apiClient.closeChannel();
+		}
 		if (panel != null)
 		{
 			panel.onEventKeyChanged();
@@ -62,21 +181,54 @@ public class GameStateService
 
 	public void clearEventKey()
 	{
+		apiClient.closeChannel();
+		apiClient.cancelRequests(currentEventKey);
+		apiClient.invalidateEventKey(currentEventKey);
 		this.currentEventKey = "";
+		triggerRegistry.setEnabledSources(null);
+		zoneTracker.setZones(null);
 		if (panel != null)
 		{
 			panel.onEventKeyChanged();
 		}
 	}
 
+	// The key was just validated, so this is normally answered from the validation cache
+	private void applyTriggerSources(String eventKey)
+	{
+		apiClient.validateEventKey(eventKey).thenAccept(response -> {
+			if (!isCurrentEventKey(eventKey) || !response.success)
+			{
+				return;
+			}
+
+			if (response.triggerSources != null)
+			{
+				log.debug("Trigger sources for '{}': {}", eventKey, response.triggerSources);
+				triggerRegistry.setEnabledSources(response.triggerSources);
+			}
+			if (response.zones != null)
+			{
+				log.debug("{} zones for '{}'", response.zones.size(), eventKey);
+				zoneTracker.setZones(response.zones);
+			}
+		});
+	}
+
 	public boolean hasEventKey()
 	{
 		return !currentEventKey.isEmpty();
 	}
 
+	// Answer Builder Mode captures without an event key, since they are only checked locally
 	private boolean isEventKeyValid()
 	{
-		return hasEventKey();
+		return hasEventKey() || config.answerBuilderMode();
+	}
+
+	private boolean isCurrentEventKey(String eventKey)
+	{
+		return currentEventKey.equals(eventKey);
 	}
 
 	public void captureFromButton()
@@ -96,12 +248,11 @@ public class GameStateService
 				return;
 			}
 			
-			String eventKey = getEventKey();
-			captureGameState("button", "Manual submission via Submit Answer button", null, null, null, eventKey);
+			recordTrigger(SubmissionRateLimiter.MANUAL_TRIGGER, CaptureSnapshot.NONE, CaptureSnapshot.NONE, CaptureSnapshot.NONE, null);
 		});
 	}
 
-	public void captureFromAnimation(int animationId)
+	public void captureFromTrigger(Trigger trigger)
 	{
 		clientThread.invokeLater(() -> {
 			if (!isEventKeyValid())
@@ -111,64 +262,207 @@ public class GameStateService
 					client.addChatMessage(
 						ChatMessageType.GAMEMESSAGE,
 						"",
-						"[LL-debug] Game state capture skipped - Event Key is empty (Animation ID: " + animationId + ")",
+						"[LL-debug] Game state capture skipped - Event Key is empty (" + trigger + ")",
 						null
 					);
 				}
 				return;
 			}
 			
-			String triggerType = (animationId == 830) ? "dig" : "emote"; // 830 is AnimationID.DIG
-			String eventKey = getEventKey();
-			captureGameState(triggerType, "Animation ID: " + animationId, animationId, null, null, eventKey);
+			recordTrigger(trigger.type, trigger.emoteId, trigger.npcId, trigger.targetId, trigger.interactionType);
 		});
 	}
 
-	public void captureFromNpcInteraction(int npcId, String interactionType)
+	// Triggers are buffered until the next game tick so everything that happened in one tick
+	// goes out as a single snapshot and a single submission. Client thread only.
+	private void recordTrigger(String trigger, int emoteId, int npcId, int targetId, String interactionType)
 	{
-		clientThread.invokeLater(() -> {
-			if (!isEventKeyValid())
+		if (tickCapture == null)
+		{
+			tickCapture = captureSnapshotPool.acquire();
+		}
+
+		if (!tickCapture.addTrigger(trigger, emoteId, npcId, targetId, interactionType))
+		{
+			log.debug("Too many triggers in one tick, ignoring {}", trigger);
+		}
+
+		// No ticks arrive while logged out, so there is nothing to wait for
+		if (client.getGameState() != GameState.LOGGED_IN)
+		{
+			flushTick();
+		}
+	}
+
+	public void onGameTick()
+	{
+		checkZones();
+		flushTick();
+	}
+
+	// Zone entries and exits join the triggers from the same tick
+	private void checkZones()
+	{
+		if (!hasEventKey())
+		{
+			return;
+		}
+
+		Player player = client.getLocalPlayer();
+		if (player == null)
+		{
+			return;
+		}
+
+		WorldPoint location = player.getWorldLocation();
+		zoneTracker.update(location.getX(), location.getY(), location.getPlane(), zoneListener);
+	}
+
+	private void onZoneTransition(int zoneId, boolean entered)
+	{
+		recordTrigger(entered ? "zone_enter" : "zone_exit", CaptureSnapshot.NONE, CaptureSnapshot.NONE, zoneId, null);
+	}
+
+	private void flushTick()
+	{
+		CaptureSnapshot snapshot = tickCapture;
+		if (snapshot == null)
+		{
+			return;
+		}
+		tickCapture = null;
+		captureGameState(snapshot);
+	}
+
+	// Client thread stage: copy what the game knows into the snapshot and hand it off straight away.
+	// Everything else happens on the submission thread so the game's frame loop is not held up.
+	private void captureGameState(CaptureSnapshot snapshot)
+	{
+		long start = System.nanoTime();
+		Player player = client.getLocalPlayer();
+		if (player == null || !isEventKeyValid())
+		{
+			captureSnapshotPool.release(snapshot);
+			if (player == null && panel != null)
 			{
-				if (config.debug())
-				{
-					client.addChatMessage(
-						ChatMessageType.GAMEMESSAGE,
-						"",
-						"[LL-debug] Game state capture skipped - Event Key is empty (NPC ID: " + npcId + ", Action: " + interactionType + ")",
-						null
-					);
-				}
-				return;
+				panel.updateStatusLabel("Player not found");
 			}
-			
-			String eventKey = getEventKey();
-			captureGameState("npc_interaction", "NPC ID: " + npcId + ", Action: " + interactionType, null, npcId, interactionType, eventKey);
-		});
+			return;
+		}
+
+		gameStateCapture.capture(snapshot, player);
+		snapshot.eventKey = getEventKey();
+		dispatch(snapshot);
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Capture took {} us on the client thread", (System.nanoTime() - start) / 1000);
+		}
 	}
 
-	private void captureGameState(String trigger, String additionalInfo, Integer emoteId, Integer npcId, String interactionType, String eventKey)
+	private void dispatch(CaptureSnapshot snapshot)
 	{
-		Player player = client.getLocalPlayer();
-		if (player != null)
+		ExecutorService executor = submissionExecutor;
+		if (executor == null)
 		{
-			WorldPoint worldLocation = player.getWorldLocation();
-			LocalPoint localLocation = player.getLocalLocation();
+			// Not started - nothing to hand off to
+			processCapture(snapshot);
+			return;
+		}
 
-			ApiClient.LocationData locationData = gameStateCapture.getLocationData(worldLocation, localLocation);
-			List<ApiClient.ItemData> inventoryData = gameStateCapture.getInventoryData();
-			List<ApiClient.ItemData> wornItemsData = gameStateCapture.getWornItemsData();
-			
-			ApiClient.GameStateSubmission gameStateSubmission = gameStateCapture.createGameStateSubmission(
-				locationData, inventoryData, wornItemsData, emoteId, npcId, interactionType, eventKey);
+		try
+		{
+			executor.execute(() -> processCapture(snapshot));
+		}
+		catch (RejectedExecutionException e)
+		{
+			// Only reachable when captures arrive far faster than they can be sent
+			log.warn("Capture queue is full, dropping {} capture", snapshot.primaryTrigger());
+			captureSnapshotPool.release(snapshot);
+		}
+	}
 
-			// Log submission info
-			log.info("=== Lenny's Labyrinth Game State Submission ({}) ===", trigger);
-			log.info("Trigger info: {}", additionalInfo);
-			log.info("Event Key: {}, Inventory: {} items, Worn: {} items", 
-				eventKey, inventoryData.size(), wornItemsData.size());
+	// Submission thread stage: dedupe, build the DTO, log, update the UI and send
+	private void processCapture(CaptureSnapshot snapshot)
+	{
+		String trigger = snapshot.primaryTrigger();
+		String eventKey = snapshot.eventKey;
+		String additionalInfo = describeTriggers(snapshot);
 
-			// Update UI immediately
+		ApiClient.GameStateSubmission gameStateSubmission;
+		if (config.answerBuilderMode())
+		{
+			// Test the answer being built against what the author just did; nothing is sent
+			try
+			{
+				gameStateSubmission = snapshot.toSubmission();
+			}
+			finally
+			{
+				captureSnapshotPool.release(snapshot);
+			}
+
+			log.debug("Testing answer constraints against {} capture", trigger);
+			if (answerBuilderPanel != null)
+			{
+				answerBuilderPanel.onCapture(gameStateSubmission, trigger);
+			}
+			return;
+		}
+
+		try
+		{
+			// Emote spam and repeated digs on the same tile produce identical snapshots
+			if (!submissionCoalescer.shouldSubmit(snapshot))
+			{
+				debugChatMessage("[LL-debug] Duplicate game state ignored (" + trigger + ")");
+				return;
+			}
+
+			gameStateSubmission = snapshot.toSubmission();
+		}
+		finally
+		{
+			captureSnapshotPool.release(snapshot);
+		}
+
+		// Log submission info
+		log.info("=== Lenny's Labyrinth Game State Submission ({}) ===", trigger);
+		log.info("Trigger info: {}", additionalInfo);
+		log.info("Event Key: {}, Inventory: {} items, Worn: {} items", 
+			eventKey, gameStateSubmission.inventory.size(), gameStateSubmission.worn_items.size());
+
+		long historyId = captureHistory.record(gameStateSubmission, trigger);
+
+		// Keep a busy player within the per-key, per-trigger submission rate
+		long delayMillis = submissionRateLimiter.reserve(eventKey, trigger);
+		if (delayMillis < 0)
+		{
+			submissionCoalescer.forget(gameStateSubmission);
+			captureHistory.recordOutcome(historyId, RATE_LIMITED);
 			if (panel != null)
+			{
+				panel.updateStatusLabel(String.format(
+					"<html><center>Too many submissions<br/>Slow down and try again<br/>Event: %s</center></html>",
+					eventKey
+				));
+			}
+			return;
+		}
+
+		// Update UI immediately
+		if (panel != null)
+		{
+			if (delayMillis > 0)
+			{
+				panel.updateStatusLabel(String.format(
+					"<html><center>Rate limited<br/>Sending in %ds...<br/>Trigger: %s<br/>Event: %s</center></html>",
+					Math.max(1, (delayMillis + 999) / 1000),
+					trigger,
+					eventKey
+				));
+			}
+			else
 			{
 				panel.updateStatusLabel(String.format(
 					"<html><center>Submitting...<br/>Trigger: %s<br/>%s<br/>Event: %s</center></html>",
@@ -177,33 +471,173 @@ public class GameStateService
 					eventKey
 				));
 			}
+		}
+
+		if (delayMillis > 0)
+		{
+			submissionRateLimiter.defer(() -> submit(gameStateSubmission, eventKey, historyId), delayMillis);
+		}
+		else
+		{
+			submit(gameStateSubmission, eventKey, historyId);
+		}
+
+		// Show initial message in chat (debug mode only)
+		debugChatMessage("[LL-debug] Submitting guess for '" + eventKey + "'...");
+	}
+
+	// Sends a past snapshot again exactly as it was captured. The player asked for it explicitly,
+	// so it skips the duplicate check but still spends from the manual rate limit budget.
+	public void resubmit(long historyId)
+	{
+		ExecutorService executor = submissionExecutor;
+		if (executor == null)
+		{
+			return;
+		}
+
+		try
+		{
+			executor.execute(() -> {
+				ApiClient.GameStateSubmission captured = captureHistory.getSubmission(historyId);
+				if (captured == null)
+				{
+					return;
+				}
+				ApiClient.GameStateSubmission gameStateSubmission = captured.copyForResubmit();
+
+				String eventKey = gameStateSubmission.event_key;
+				long delayMillis = submissionRateLimiter.reserve(eventKey, SubmissionRateLimiter.MANUAL_TRIGGER);
+				if (delayMillis < 0)
+				{
+					captureHistory.recordOutcome(historyId, RATE_LIMITED);
+					return;
+				}
 
-			// Submit to API
-			CompletableFuture<ApiClient.ApiResponse> future = apiClient.submitGuess(gameStateSubmission);
-			future.thenAccept(this::handleApiResponse);
+				log.info("Resubmitting captured game state for '{}'", eventKey);
+				captureHistory.markPending(historyId);
+				if (delayMillis > 0)
+				{
+					submissionRateLimiter.defer(() -> submit(gameStateSubmission, eventKey, historyId), delayMillis);
+				}
+				else
+				{
+					submit(gameStateSubmission, eventKey, historyId);
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			log.warn("Capture queue is full, not resubmitting");
+		}
+	}
 
-			// Show initial message in chat (debug mode only)
-			if (config.debug())
+	// Writes the capture history to a file off the Swing thread and reports the result in the panel
+	public void exportHistory(File file)
+	{
+		ExecutorService executor = submissionExecutor;
+		if (executor == null)
+		{
+			return;
+		}
+
+		try
+		{
+			executor.execute(() -> {
+				try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+				{
+					captureHistory.export(out);
+					log.info("Exported capture history to {}", file);
+					if (panel != null)
+					{
+						panel.updateStatusLabel("<html><center>Capture history exported<br/>" + file.getName() + "</center></html>");
+					}
+				}
+				catch (IOException e)
+				{
+					log.warn("Failed to export capture history to {}", file, e);
+					if (panel != null)
+					{
+						panel.updateStatusLabel("<html><center><font color='red'>Export failed</font><br/>" + e.getMessage() + "</center></html>");
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			log.warn("Capture queue is full, not exporting history");
+		}
+	}
+
+	// Chat can only be written from the client thread
+	private void debugChatMessage(String message)
+	{
+		if (config.debug())
+		{
+			clientThread.invokeLater(() -> client.addChatMessage(
+				ChatMessageType.GAMEMESSAGE,
+				"",
+				message,
+				null
+			));
+		}
+	}
+
+	private static String describeTriggers(CaptureSnapshot snapshot)
+	{
+		StringBuilder description = new StringBuilder();
+		for (int i = 0; i < snapshot.triggerCount; i++)
+		{
+			if (i > 0)
 			{
-				client.addChatMessage(
-					ChatMessageType.GAMEMESSAGE,
-					"",
-					"[LL-debug] Submitting guess for '" + eventKey + "'...",
-					null
-				);
+				description.append("; ");
 			}
+			description.append(describeTrigger(snapshot.emoteIds[i], snapshot.npcIds[i], snapshot.targetIds[i], snapshot.interactionTypes[i]));
 		}
-		else
+		return description.toString();
+	}
+
+	private static String describeTrigger(int emoteId, int npcId, int targetId, String interactionType)
+	{
+		if (emoteId != CaptureSnapshot.NONE)
 		{
-			if (panel != null)
+			return "Animation ID: " + emoteId;
+		}
+		if (npcId != CaptureSnapshot.NONE)
+		{
+			return "NPC ID: " + npcId + ", Action: " + interactionType;
+		}
+		if (targetId != CaptureSnapshot.NONE)
+		{
+			return interactionType != null ? "Target ID: " + targetId + ", Action: " + interactionType : "Zone ID: " + targetId;
+		}
+		return "Manual submission via Submit Answer button";
+	}
+
+	private void submit(ApiClient.GameStateSubmission gameStateSubmission, String eventKey, long historyId)
+	{
+		// Submit to API through the durable outbox so transient failures are retried
+		CompletableFuture<ApiClient.ApiResponse> future = submissionOutbox.enqueue(gameStateSubmission);
+		future.thenAccept(response -> {
+			captureHistory.recordOutcome(historyId, response);
+			if (response.errorType != null)
 			{
-				panel.updateStatusLabel("Player not found");
+				// Not a real answer from the server, so allow the same state to be sent again
+				submissionCoalescer.forget(gameStateSubmission);
 			}
-		}
+			handleApiResponse(response, eventKey);
+		});
 	}
 
-	private void handleApiResponse(ApiClient.ApiResponse response)
+	private void handleApiResponse(ApiClient.ApiResponse response, String eventKey)
 	{
+		// The player has moved on to another key, so this answer no longer belongs in the panel
+		if (!isCurrentEventKey(eventKey))
+		{
+			log.debug("Ignoring response for previous event key '{}': {}", eventKey, response.message);
+			return;
+		}
+
 		// Update UI
 		if (panel != null)
 		{
@@ -229,7 +663,7 @@ public class GameStateService
 		// Trigger victory celebration if successful
 		if (response.success && celebrationManager != null)
 		{
-			celebrationManager.triggerVictoryCelebration(currentEventKey);
+			celebrationManager.triggerVictoryCelebration(eventKey);
 		}
 
 		// Add message to in-game chat on client thread
@@ -258,4 +692,47 @@ public class GameStateService
 			}
 		});
 	}
+
+	// Pushed by the server over the live connection
+	private void handleEventUpdate(SubmissionChannel.EventUpdate update)
+	{
+		if (update.eventKey != null && !isCurrentEventKey(update.eventKey))
+		{
+			return;
+		}
+
+		String text;
+		if (update.message != null)
+		{
+			text = update.message;
+		}
+		else if (update.closed)
+		{
+			text = "This event has closed";
+		}
+		else if (update.solvedCount != null)
+		{
+			text = "Puzzle solved by " + update.solvedCount + " player" + (update.solvedCount == 1 ? "" : "s");
+		}
+		else
+		{
+			return;
+		}
+
+		if (panel != null)
+		{
+			panel.updateStatusLabel(String.format(
+				"<html><center>%s<br/>Event: %s</center></html>",
+				text,
+				currentEventKey
+			));
+		}
+
+		clientThread.invokeLater(() -> client.addChatMessage(
+			ChatMessageType.GAMEMESSAGE,
+			"",
+			"[Lenny's Labyrinth] " + text,
+			null
+		));
+	}
 }
\ No newline at end of file
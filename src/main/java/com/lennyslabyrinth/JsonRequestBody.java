@@ -0,0 +1,67 @@
+package com.lennyslabyrinth;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+// Streams an object as JSON straight into the request sink instead of building the whole body as a String
+class JsonRequestBody extends RequestBody
+{
+	private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+	private final Gson gson;
+	private final Object value;
+	private final Type type;
+	private final boolean gzip;
+
+	JsonRequestBody(Gson gson, Object value, Type type, boolean gzip)
+	{
+		this.gson = gson;
+		this.value = value;
+		this.type = type;
+		this.gzip = gzip;
+	}
+
+	boolean isGzip()
+	{
+		return gzip;
+	}
+
+	@Override
+	public MediaType contentType()
+	{
+		return JSON;
+	}
+
+	@Override
+	public long contentLength()
+	{
+		// Unknown until written, so the body goes out chunked
+		return -1;
+	}
+
+	@Override
+	public void writeTo(BufferedSink sink) throws IOException
+	{
+		BufferedSink target = gzip ? Okio.buffer(new GzipSink(sink)) : sink;
+
+		JsonWriter jsonWriter = gson.newJsonWriter(new OutputStreamWriter(target.outputStream(), StandardCharsets.UTF_8));
+		gson.toJson(value, type, jsonWriter);
+		jsonWriter.flush();
+
+		if (gzip)
+		{
+			// Writes the gzip trailer
+			target.close();
+		}
+	}
+}
@@ -3,10 +3,21 @@ package com.lennyslabyrinth;
 import net.runelite.client.config.Config;
 import net.runelite.client.config.ConfigGroup;
 import net.runelite.client.config.ConfigItem;
+import net.runelite.client.config.ConfigSection;
+import net.runelite.client.config.Range;
+import net.runelite.client.config.Units;
 
 @ConfigGroup("lennyslabyrinth")
 public interface LennysLabyrinthConfig extends Config
 {
+	@ConfigSection(
+		name = "Submissions",
+		description = "Controls how captured game states are sent to the server",
+		position = 100,
+		closedByDefault = true
+	)
+	String submissionSection = "submissionSection";
+
 	@ConfigItem(
 		keyName = "debug",
 		name = "Debug Mode",
@@ -17,6 +28,16 @@ public interface LennysLabyrinthConfig extends Config
 		return false;
 	}
 
+	@ConfigItem(
+		keyName = "emoteCalibration",
+		name = "Emote calibration",
+		description = "Learn the animation of each emote you click in the emote tab and remember new ones as triggers"
+	)
+	default boolean emoteCalibration()
+	{
+		return false;
+	}
+
 	@ConfigItem(
 		keyName = "showCelebrationSound",
 		name = "Victory sound effects",
@@ -47,4 +68,84 @@ public interface LennysLabyrinthConfig extends Config
 		return false;
 	}
 
-}
\ No newline at end of file
+	@Range(max = 300)
+	@Units(Units.SECONDS)
+	@ConfigItem(
+		keyName = "duplicateWindowSeconds",
+		name = "Duplicate window",
+		description = "Identical game states captured within this many seconds are only submitted once (0 disables)",
+		section = submissionSection
+	)
+	default int duplicateWindowSeconds()
+	{
+		return 10;
+	}
+
+	@Range(min = 1, max = 120)
+	@ConfigItem(
+		keyName = "submissionsPerMinute",
+		name = "Submissions per minute",
+		description = "Sustained rate of submissions per event key and trigger type. Faster submissions are delayed, not dropped",
+		section = submissionSection
+	)
+	default int submissionsPerMinute()
+	{
+		return 20;
+	}
+
+	@Range(min = 1, max = 20)
+	@ConfigItem(
+		keyName = "submissionBurst",
+		name = "Submission burst",
+		description = "Submissions that can be sent back to back before the per-minute rate applies",
+		section = submissionSection
+	)
+	default int submissionBurst()
+	{
+		return 5;
+	}
+
+	@ConfigItem(
+		keyName = "compressRequests",
+		name = "Compress submissions",
+		description = "Gzip submission bodies before sending them, useful on slow or metered connections",
+		section = submissionSection
+	)
+	default boolean compressRequests()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "binaryWireFormat",
+		name = "Compact binary submissions",
+		description = "Send submissions in a compact binary format when the server supports it, otherwise JSON is used",
+		section = submissionSection
+	)
+	default boolean binaryWireFormat()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "liveConnection",
+		name = "Live connection",
+		description = "Keep a connection to the server open while an event key is set, for faster results and live event updates. Normal requests are used when it is unavailable",
+		section = submissionSection
+	)
+	default boolean liveConnection()
+	{
+		return false;
+	}
+
+	@ConfigItem(
+		keyName = "apiBaseUrl",
+		name = "API URL override",
+		description = "Send requests to this URL instead of the Lenny's Labyrinth server, e.g. a local stand-in server (leave empty for the real server)",
+		section = submissionSection
+	)
+	default String apiBaseUrl()
+	{
+		return "";
+	}
+}
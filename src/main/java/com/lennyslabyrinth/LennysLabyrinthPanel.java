@@ -9,6 +9,9 @@ import javax.inject.Singleton;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 
 @Singleton
 public class LennysLabyrinthPanel extends PluginPanel
@@ -23,6 +26,12 @@ public class LennysLabyrinthPanel extends PluginPanel
 	private JPanel buttonPanel;
 	private JLabel statusLabel;
 
+	// Recent captures
+	private DefaultListModel<CaptureHistory.Record> historyModel;
+	private JList<CaptureHistory.Record> historyList;
+	private JButton resubmitButton;
+	private JButton exportButton;
+
 	// Buttons for different states
 	private JButton setEventKeyButton;
 	private JButton unsetEventKeyButton;
@@ -52,10 +61,16 @@ public class LennysLabyrinthPanel extends PluginPanel
 		// Create all buttons
 		createButtons();
 
+		// Status and history below the buttons
+		JPanel southPanel = new JPanel(new BorderLayout(0, 10));
+		southPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+		southPanel.add(statusLabel, BorderLayout.NORTH);
+		southPanel.add(createHistoryPanel(), BorderLayout.CENTER);
+
 		// Layout
 		add(titleLabel, BorderLayout.NORTH);
 		add(buttonPanel, BorderLayout.CENTER);
-		add(statusLabel, BorderLayout.SOUTH);
+		add(southPanel, BorderLayout.SOUTH);
 
 		// UI state will be initialized in initialize() after injection
 	}
@@ -75,11 +90,46 @@ public class LennysLabyrinthPanel extends PluginPanel
 		submitAnswerButton.addActionListener(this::onSubmitAnswerClick);
 	}
 
+	private JPanel createHistoryPanel()
+	{
+		JLabel historyLabel = new JLabel("Recent captures");
+		historyLabel.setForeground(Color.WHITE);
+
+		historyModel = new DefaultListModel<>();
+		historyList = new JList<>(historyModel);
+		historyList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		historyList.setVisibleRowCount(6);
+		historyList.setCellRenderer(new HistoryCellRenderer());
+		historyList.addListSelectionListener(e -> resubmitButton.setEnabled(historyList.getSelectedValue() != null));
+
+		resubmitButton = new JButton("Resubmit");
+		resubmitButton.setEnabled(false);
+		resubmitButton.addActionListener(this::onResubmitClick);
+
+		exportButton = new JButton("Export...");
+		exportButton.addActionListener(this::onExportClick);
+
+		JPanel historyButtons = new JPanel(new GridLayout(1, 2, 5, 0));
+		historyButtons.setBackground(ColorScheme.DARK_GRAY_COLOR);
+		historyButtons.add(resubmitButton);
+		historyButtons.add(exportButton);
+
+		JPanel historyPanel = new JPanel(new BorderLayout(0, 5));
+		historyPanel.setBackground(ColorScheme.DARK_GRAY_COLOR);
+		historyPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
+		historyPanel.add(historyLabel, BorderLayout.NORTH);
+		historyPanel.add(new JScrollPane(historyList), BorderLayout.CENTER);
+		historyPanel.add(historyButtons, BorderLayout.SOUTH);
+		return historyPanel;
+	}
+
 	@Inject
 	public void initialize()
 	{
 		// Set up the bidirectional reference with the service
 		gameStateService.setPanel(this);
+		gameStateService.getCaptureHistory().setListener(() -> SwingUtilities.invokeLater(this::refreshHistory));
+		refreshHistory();
 		
 		// Initialize UI state now that injection is complete
 		updatePanelForEventKeyState();
@@ -148,6 +198,71 @@ public class LennysLabyrinthPanel extends PluginPanel
 		gameStateService.captureFromButton();
 	}
 
+	private void onResubmitClick(ActionEvent e)
+	{
+		CaptureHistory.Record record = historyList.getSelectedValue();
+		if (record != null)
+		{
+			gameStateService.resubmit(record.id);
+		}
+	}
+
+	private void onExportClick(ActionEvent e)
+	{
+		JFileChooser chooser = new JFileChooser();
+		chooser.setDialogTitle("Export capture history");
+		chooser.setSelectedFile(new File("lennys-labyrinth-captures.json"));
+		if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION)
+		{
+			gameStateService.exportHistory(chooser.getSelectedFile());
+		}
+	}
+
+	private void refreshHistory()
+	{
+		// Keep the selection on the same capture as new ones push it down the list
+		CaptureHistory.Record selected = historyList.getSelectedValue();
+		historyModel.clear();
+		for (CaptureHistory.Record record : gameStateService.getCaptureHistory().getRecords())
+		{
+			historyModel.addElement(record);
+			if (selected != null && record.id == selected.id)
+			{
+				historyList.setSelectedIndex(historyModel.size() - 1);
+			}
+		}
+	}
+
+	private static class HistoryCellRenderer extends DefaultListCellRenderer
+	{
+		private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+
+		@Override
+		public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus)
+		{
+			super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+			CaptureHistory.Record record = (CaptureHistory.Record) value;
+
+			String outcome;
+			if (record.pending)
+			{
+				outcome = "...";
+			}
+			else if (record.success)
+			{
+				outcome = "<font color='green'>✓</font>";
+			}
+			else
+			{
+				outcome = "<font color='red'>✗</font>";
+			}
+
+			setText("<html>" + timeFormat.format(new Date(record.capturedAt)) + " " + record.trigger + " " + outcome + "</html>");
+			setToolTipText(record.pending ? "Waiting for response" : record.message);
+			return this;
+		}
+	}
+
 	private void showEventKeyDialog(String currentEventKey, boolean isChanging)
 	{
 		// Find the parent frame
@@ -1,16 +1,20 @@
 package com.lennyslabyrinth;
 
 import com.google.inject.Provides;
+import com.lennyslabyrinth.triggers.AnimationTableLoader;
+import com.lennyslabyrinth.triggers.EmoteCalibrator;
+import com.lennyslabyrinth.triggers.Trigger;
+import com.lennyslabyrinth.triggers.TriggerRegistry;
 import javax.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
-import net.runelite.api.AnimationID;
 import net.runelite.api.ChatMessageType;
 import net.runelite.api.Client;
 import net.runelite.api.GameState;
-import net.runelite.api.MenuAction;
 import net.runelite.api.Player;
 import net.runelite.api.events.AnimationChanged;
 import net.runelite.api.events.GameStateChanged;
+import net.runelite.api.events.GameTick;
+import net.runelite.api.events.ItemContainerChanged;
 import net.runelite.api.events.MenuOptionClicked;
 import net.runelite.client.config.ConfigManager;
 import net.runelite.client.eventbus.Subscribe;
@@ -47,6 +51,21 @@ public class LennysLabyrinthPlugin extends Plugin
 	@Inject
 	private CelebrationManager celebrationManager;
 
+	@Inject
+	private ApiClient apiClient;
+
+	@Inject
+	private ContainerSnapshotCache containerSnapshotCache;
+
+	@Inject
+	private TriggerRegistry triggerRegistry;
+
+	@Inject
+	private AnimationTableLoader animationTableLoader;
+
+	@Inject
+	private EmoteCalibrator emoteCalibrator;
+
 	private NavigationButton navButton;
 
 	@Override
@@ -64,12 +83,18 @@ public class LennysLabyrinthPlugin extends Plugin
 			.build();
 
 		clientToolbar.addNavigation(navButton);
+
+		triggerRegistry.startUp();
+		gameStateService.startUp();
 	}
 
 	@Override
 	protected void shutDown() throws Exception
 	{
 		log.info("Lenny's Labyrinth stopped!");
+		gameStateService.shutDown();
+		triggerRegistry.shutDown();
+		containerSnapshotCache.clear();
 		clientToolbar.removeNavigation(navButton);
 	}
 
@@ -77,6 +102,23 @@ public class LennysLabyrinthPlugin extends Plugin
 	public void onGameStateChanged(GameStateChanged gameStateChanged)
 	{
 		// No chat message on login
+		GameState state = gameStateChanged.getGameState();
+		if (state == GameState.LOGIN_SCREEN || state == GameState.HOPPING)
+		{
+			containerSnapshotCache.clear();
+		}
+	}
+
+	@Subscribe
+	public void onGameTick(GameTick gameTick)
+	{
+		gameStateService.onGameTick();
+	}
+
+	@Subscribe
+	public void onItemContainerChanged(ItemContainerChanged event)
+	{
+		containerSnapshotCache.onItemContainerChanged(event);
 	}
 
 	@Subscribe
@@ -101,45 +143,43 @@ public class LennysLabyrinthPlugin extends Plugin
 		// Debug mode: show all animation IDs in chat
 		if (config.debug())
 		{
+			String name = animationTableLoader.getTable().getName(animationId);
 			client.addChatMessage(
 				ChatMessageType.GAMEMESSAGE,
 				"",
-				"[LL-debug] Animation ID: " + animationId,
+				"[LL-debug] Animation ID: " + animationId + (name != null ? " (" + name + ")" : ""),
 				null
 			);
 		}
 		
+		if (config.emoteCalibration())
+		{
+			emoteCalibrator.onLocalPlayerAnimation(player, animationId);
+		}
+
 		// Check for trigger animations
-		if (AnimationTriggers.isTriggerAnimation(animationId))
+		Trigger trigger = triggerRegistry.fromAnimation(animationId);
+		if (trigger != null)
 		{
-			String triggerType = (animationId == AnimationID.DIG) ? "dig" : "emote";
-			log.info("{} detected with animation ID: {}", triggerType, animationId);
-			gameStateService.captureFromAnimation(animationId);
+			log.info("Trigger detected: {}", trigger);
+			gameStateService.captureFromTrigger(trigger);
 		}
 	}
 
 	@Subscribe
 	public void onMenuOptionClicked(MenuOptionClicked event)
 	{
-		MenuAction action = event.getMenuAction();
-		
-		// Only capture NPC interactions
-		switch (action)
+		if (config.emoteCalibration())
+		{
+			emoteCalibrator.onMenuOptionClicked(event);
+		}
+
+		// Most clicks (walking, examining, ...) belong to no trigger source and stop here
+		Trigger trigger = triggerRegistry.fromMenuOption(event);
+		if (trigger != null)
 		{
-			case NPC_FIRST_OPTION:
-			case NPC_SECOND_OPTION:
-			case NPC_THIRD_OPTION:
-			case NPC_FOURTH_OPTION:
-			case NPC_FIFTH_OPTION:
-				int npcId = event.getId();
-				String menuOption = event.getMenuOption();
-				
-				log.info("NPC interaction detected: {} (ID: {}) - {}", event.getMenuTarget(), npcId, menuOption);
-				gameStateService.captureFromNpcInteraction(npcId, menuOption);
-				break;
-			default:
-				// Ignore all other menu actions (walk, objects, widgets, etc.)
-				break;
+			log.info("Trigger detected: {} on {}", trigger, event.getMenuTarget());
+			gameStateService.captureFromTrigger(trigger);
 		}
 	}
 
@@ -148,6 +188,14 @@ public class LennysLabyrinthPlugin extends Plugin
 	{
 		if (configChanged.getGroup().equals("lennyslabyrinth"))
 		{
+			if ("apiBaseUrl".equals(configChanged.getKey()))
+			{
+				apiClient.onBaseUrlChanged();
+			}
+			else if ("liveConnection".equals(configChanged.getKey()))
+			{
+				apiClient.onLiveConnectionChanged();
+			}
 			mainPanel.updateMode();
 		}
 	}
@@ -0,0 +1,412 @@
+package com.lennyslabyrinth;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional long-lived WebSocket to the API for one event key. Submissions are framed onto it with
+// correlation ids, results come back on the same socket, and the server can push event updates at any time.
+// A submission the channel cannot answer completes with null so the caller sends it over HTTP instead;
+// the frame carries the submission's request id, so the server can drop the resend if the frame did arrive.
+@Slf4j
+public class SubmissionChannel extends WebSocketListener
+{
+	private static final long PING_INTERVAL_SECONDS = 20;
+	private static final long RESULT_TIMEOUT_MILLIS = 10_000;
+	private static final long INITIAL_RECONNECT_MILLIS = 1_000;
+	private static final long MAX_RECONNECT_MILLIS = 60_000;
+	private static final int NORMAL_CLOSURE = 1000;
+
+	public interface Listener
+	{
+		void onEventUpdate(EventUpdate update);
+	}
+
+	// Pushed by the server, e.g. "puzzle solved by N players" or "event closed"
+	public static class EventUpdate
+	{
+		public final String eventKey;
+		public final String message;
+		public final Integer solvedCount;
+		public final boolean closed;
+
+		EventUpdate(String eventKey, String message, Integer solvedCount, boolean closed)
+		{
+			this.eventKey = eventKey;
+			this.message = message;
+			this.solvedCount = solvedCount;
+			this.closed = closed;
+		}
+	}
+
+	private final OkHttpClient socketClient;
+	private ScheduledExecutorService scheduler;
+	private final Map<Long, CompletableFuture<ApiClient.ApiResponse>> pending = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong();
+
+	private String url;
+	private String eventKey;
+	private Listener listener;
+	private WebSocket webSocket;
+	private boolean open;
+	private boolean unsupported;
+	private int reconnectAttempts;
+	private ScheduledFuture<?> reconnect;
+
+	SubmissionChannel(OkHttpClient httpClient)
+	{
+		// OkHttp pings keep the socket alive through proxies and detect a dead connection
+		// without a read timeout, which would otherwise close an idle channel
+		this.socketClient = httpClient.newBuilder()
+			.pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+			.readTimeout(0, TimeUnit.SECONDS)
+			.callTimeout(0, TimeUnit.SECONDS)
+			.build();
+	}
+
+	synchronized void open(String url, String eventKey, Listener listener)
+	{
+		this.listener = listener;
+		if (url.equals(this.url) && eventKey.equals(this.eventKey) && (webSocket != null || reconnect != null || unsupported))
+		{
+			return;
+		}
+
+		if (!url.equals(this.url))
+		{
+			unsupported = false;
+		}
+
+		disconnect();
+		this.url = url;
+		this.eventKey = eventKey;
+		reconnectAttempts = 0;
+		if (scheduler == null)
+		{
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "lennys-labyrinth-channel");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		if (!unsupported)
+		{
+			connect();
+		}
+	}
+
+	synchronized void close()
+	{
+		disconnect();
+		eventKey = null;
+		listener = null;
+	}
+
+	// Closes the channel and stops its timer thread; a later open() starts a new one
+	synchronized void shutDown()
+	{
+		close();
+		if (scheduler != null)
+		{
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	synchronized boolean isOpen()
+	{
+		return open;
+	}
+
+	// Completes with the server's answer, or with null if the submission should go over HTTP instead
+	CompletableFuture<ApiClient.ApiResponse> submit(ApiClient.GameStateSubmission submission)
+	{
+		CompletableFuture<ApiClient.ApiResponse> future = new CompletableFuture<>();
+		long id = nextId.incrementAndGet();
+
+		String frame;
+		try
+		{
+			frame = submitFrame(id, submission);
+		}
+		catch (IOException e)
+		{
+			log.debug("Failed to frame submission", e);
+			return CompletableFuture.completedFuture(null);
+		}
+
+		WebSocket socket;
+		ScheduledFuture<?> timeout;
+		synchronized (this)
+		{
+			if (!open)
+			{
+				return CompletableFuture.completedFuture(null);
+			}
+			socket = webSocket;
+			pending.put(id, future);
+			timeout = scheduler.schedule(() -> {
+				if (future.complete(null))
+				{
+					log.debug("No result for submission {} on the live channel, falling back to HTTP", id);
+				}
+			}, RESULT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		}
+
+		future.whenComplete((response, error) -> {
+			pending.remove(id);
+			timeout.cancel(false);
+		});
+
+		if (!socket.send(frame))
+		{
+			// Socket is closing or its outgoing buffer is full
+			future.complete(null);
+		}
+		return future;
+	}
+
+	@Override
+	public void onOpen(WebSocket socket, Response response)
+	{
+		synchronized (this)
+		{
+			if (socket != webSocket)
+			{
+				return;
+			}
+			open = true;
+			reconnectAttempts = 0;
+		}
+		log.debug("Live channel open for '{}' ({})", eventKey, response.protocol());
+	}
+
+	@Override
+	public void onMessage(WebSocket socket, String text)
+	{
+		Frame frame;
+		try
+		{
+			frame = parseFrame(text);
+		}
+		catch (IOException | JsonParseException | IllegalStateException | NumberFormatException e)
+		{
+			log.debug("Ignoring unreadable live channel frame", e);
+			return;
+		}
+
+		if ("result".equals(frame.type) && frame.result != null)
+		{
+			CompletableFuture<ApiClient.ApiResponse> future = pending.remove(frame.id);
+			if (future != null)
+			{
+				future.complete(frame.result);
+			}
+		}
+		else if ("event".equals(frame.type))
+		{
+			Listener current;
+			synchronized (this)
+			{
+				current = socket == webSocket ? listener : null;
+			}
+
+			if (current != null)
+			{
+				current.onEventUpdate(new EventUpdate(frame.eventKey, frame.message, frame.solvedCount, frame.closed));
+			}
+		}
+	}
+
+	@Override
+	public void onClosing(WebSocket socket, int code, String reason)
+	{
+		socket.close(NORMAL_CLOSURE, null);
+	}
+
+	@Override
+	public void onClosed(WebSocket socket, int code, String reason)
+	{
+		log.debug("Live channel closed by server: {} {}", code, reason);
+		lost(socket, false);
+	}
+
+	@Override
+	public void onFailure(WebSocket socket, Throwable t, Response response)
+	{
+		// A plain HTTP answer to the upgrade means the server has no live endpoint
+		boolean noEndpoint = response != null && response.code() >= 400 && response.code() < 500;
+		if (noEndpoint)
+		{
+			log.info("Server does not support a live connection, using normal requests");
+		}
+		else
+		{
+			log.debug("Live channel failed", t);
+		}
+		lost(socket, noEndpoint);
+	}
+
+	private void lost(WebSocket socket, boolean noEndpoint)
+	{
+		synchronized (this)
+		{
+			if (socket != webSocket)
+			{
+				return;
+			}
+			webSocket = null;
+			open = false;
+			unsupported = noEndpoint;
+
+			if (!noEndpoint && eventKey != null)
+			{
+				scheduleReconnect();
+			}
+		}
+		failPending();
+	}
+
+	private void connect()
+	{
+		Request request = new Request.Builder()
+			.url(url)
+			.build();
+		webSocket = socketClient.newWebSocket(request, this);
+	}
+
+	private void scheduleReconnect()
+	{
+		// Exponential backoff with equal jitter, as in the outbox
+		long ceiling = Math.min(MAX_RECONNECT_MILLIS, INITIAL_RECONNECT_MILLIS << Math.min(reconnectAttempts, 16));
+		long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+		reconnectAttempts++;
+
+		log.debug("Reconnecting live channel in {} ms", delay);
+		reconnect = scheduler.schedule(() -> {
+			synchronized (this)
+			{
+				reconnect = null;
+				if (eventKey != null && webSocket == null)
+				{
+					connect();
+				}
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private void disconnect()
+	{
+		if (reconnect != null)
+		{
+			reconnect.cancel(false);
+			reconnect = null;
+		}
+
+		if (webSocket != null)
+		{
+			webSocket.close(NORMAL_CLOSURE, "Client closed");
+			webSocket = null;
+		}
+		open = false;
+		failPending();
+	}
+
+	private void failPending()
+	{
+		// Everything still waiting goes over HTTP instead
+		List<CompletableFuture<ApiClient.ApiResponse>> waiting = new ArrayList<>(pending.values());
+		pending.clear();
+		for (CompletableFuture<ApiClient.ApiResponse> future : waiting)
+		{
+			future.complete(null);
+		}
+	}
+
+	private static String submitFrame(long id, ApiClient.GameStateSubmission submission) throws IOException
+	{
+		StringWriter out = new StringWriter();
+		try (JsonWriter writer = WireAdapters.GSON.newJsonWriter(out))
+		{
+			writer.beginObject();
+			writer.name("type").value("submit");
+			writer.name("id").value(id);
+			writer.name("submission");
+			WireAdapters.GAME_STATE_SUBMISSION.write(writer, submission);
+			writer.endObject();
+		}
+		return out.toString();
+	}
+
+	private static class Frame
+	{
+		String type;
+		long id;
+		ApiClient.ApiResponse result;
+		String eventKey;
+		String message;
+		Integer solvedCount;
+		boolean closed;
+	}
+
+	private static Frame parseFrame(String text) throws IOException
+	{
+		Frame frame = new Frame();
+		try (JsonReader reader = new JsonReader(new StringReader(text)))
+		{
+			reader.beginObject();
+			while (reader.hasNext())
+			{
+				switch (reader.nextName())
+				{
+					case "type":
+						frame.type = reader.nextString();
+						break;
+					case "id":
+						frame.id = reader.nextLong();
+						break;
+					case "result":
+						frame.result = WireAdapters.API_RESPONSE.read(reader);
+						break;
+					case "event_key":
+						frame.eventKey = reader.nextString();
+						break;
+					case "message":
+						frame.message = reader.nextString();
+						break;
+					case "solved_count":
+						frame.solvedCount = reader.nextInt();
+						break;
+					case "closed":
+						frame.closed = reader.nextBoolean();
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+		}
+		return frame;
+	}
+}
@@ -0,0 +1,184 @@
+package com.lennyslabyrinth;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Singleton
+public class SubmissionCoalescer
+{
+	private static final int MAX_TRACKED = 256;
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	@Inject
+	private LennysLabyrinthConfig config;
+
+	// Fingerprint -> time first sent, in insertion (and therefore time) order
+	private final LinkedHashMap<Long, Long> recent = new LinkedHashMap<>();
+
+	// Returns false if an identical capture was already sent inside the duplicate window. Checked straight
+	// from the snapshot, so a duplicate is rejected before any DTO is built.
+	// A press of the Submit button is an explicit request and is always sent.
+	boolean shouldSubmit(CaptureSnapshot snapshot)
+	{
+		if (SubmissionRateLimiter.MANUAL_TRIGGER.equals(snapshot.primaryTrigger()))
+		{
+			return true;
+		}
+		return shouldSubmit(fingerprint(snapshot), snapshot.eventKey);
+	}
+
+	private synchronized boolean shouldSubmit(long fingerprint, String eventKey)
+	{
+		long windowMillis = config.duplicateWindowSeconds() * 1000L;
+		if (windowMillis <= 0)
+		{
+			return true;
+		}
+
+		long now = System.currentTimeMillis();
+		evictExpired(now, windowMillis);
+
+		if (recent.containsKey(fingerprint))
+		{
+			log.debug("Suppressing duplicate submission for '{}'", eventKey);
+			return false;
+		}
+
+		recent.put(fingerprint, now);
+		if (recent.size() > MAX_TRACKED)
+		{
+			Iterator<Long> it = recent.keySet().iterator();
+			it.next();
+			it.remove();
+		}
+		return true;
+	}
+
+	// Lets the same state be sent again, e.g. after it failed without reaching the server
+	public synchronized void forget(ApiClient.GameStateSubmission submission)
+	{
+		recent.remove(fingerprint(submission));
+	}
+
+	private void evictExpired(long now, long windowMillis)
+	{
+		Iterator<Map.Entry<Long, Long>> it = recent.entrySet().iterator();
+		while (it.hasNext())
+		{
+			if (now - it.next().getValue() < windowMillis)
+			{
+				break;
+			}
+			it.remove();
+		}
+	}
+
+	// Only for forget(), which gets the submission back after it was built from the snapshot
+	private static long fingerprint(ApiClient.GameStateSubmission submission)
+	{
+		long hash = FNV_OFFSET;
+		if (submission.location != null && submission.location.world != null)
+		{
+			hash = mix(hash, submission.location.world.x);
+			hash = mix(hash, submission.location.world.y);
+			hash = mix(hash, submission.location.world.plane);
+		}
+		hash = mixItems(hash, submission.inventory);
+		hash = mix(hash, -1); // Separator so items cannot shift between containers
+		hash = mixItems(hash, submission.worn_items);
+		hash = mix(hash, submission.emote_id != null ? submission.emote_id : -1);
+		hash = mix(hash, submission.npc_id != null ? submission.npc_id : -1);
+		hash = mix(hash, submission.interaction_type != null ? submission.interaction_type.hashCode() : 0);
+		hash = mix(hash, submission.event_key != null ? submission.event_key.hashCode() : 0);
+		if (submission.triggers != null)
+		{
+			for (ApiClient.TriggerData trigger : submission.triggers)
+			{
+				hash = mixTrigger(hash, trigger.type,
+					trigger.emote_id != null ? trigger.emote_id : -1,
+					trigger.npc_id != null ? trigger.npc_id : -1,
+					trigger.interaction_type,
+					trigger.target_id != null ? trigger.target_id : -1);
+			}
+		}
+		return hash;
+	}
+
+	// Must give the same result as fingerprint(snapshot.toSubmission()) so forget() matches
+	static long fingerprint(CaptureSnapshot snapshot)
+	{
+		long hash = FNV_OFFSET;
+		hash = mix(hash, snapshot.worldX);
+		hash = mix(hash, snapshot.worldY);
+		hash = mix(hash, snapshot.plane);
+		hash = mixItems(hash, snapshot.inventory.packed);
+		hash = mix(hash, -1);
+		hash = mixItems(hash, snapshot.equipment.packed);
+		hash = mix(hash, snapshot.primaryEmoteId());
+		int npcIndex = snapshot.primaryNpcIndex();
+		hash = mix(hash, npcIndex != CaptureSnapshot.NONE ? snapshot.npcIds[npcIndex] : -1);
+		String interactionType = npcIndex != CaptureSnapshot.NONE ? snapshot.interactionTypes[npcIndex] : null;
+		hash = mix(hash, interactionType != null ? interactionType.hashCode() : 0);
+		hash = mix(hash, snapshot.eventKey != null ? snapshot.eventKey.hashCode() : 0);
+		if (snapshot.hasTriggerList())
+		{
+			for (int i = 0; i < snapshot.triggerCount; i++)
+			{
+				hash = mixTrigger(hash, snapshot.triggers[i], snapshot.emoteIds[i], snapshot.npcIds[i], snapshot.interactionTypes[i], snapshot.targetIds[i]);
+			}
+		}
+		return hash;
+	}
+
+	private static long mixTrigger(long hash, String type, int emoteId, int npcId, String interactionType, int targetId)
+	{
+		hash = mix(hash, type != null ? type.hashCode() : 0);
+		hash = mix(hash, emoteId);
+		hash = mix(hash, npcId);
+		hash = mix(hash, interactionType != null ? interactionType.hashCode() : 0);
+		return mix(hash, targetId);
+	}
+
+	private static long mixItems(long hash, int[] packed)
+	{
+		for (int value : packed)
+		{
+			hash = mix(hash, value);
+		}
+		return hash;
+	}
+
+	private static long mixItems(long hash, List<ApiClient.ItemData> items)
+	{
+		if (items == null)
+		{
+			return hash;
+		}
+
+		for (ApiClient.ItemData item : items)
+		{
+			hash = mix(hash, item.slot);
+			hash = mix(hash, item.id);
+			hash = mix(hash, item.quantity);
+		}
+		return hash;
+	}
+
+	private static long mix(long hash, int value)
+	{
+		for (int i = 0; i < 4; i++)
+		{
+			hash ^= (value >>> (i * 8)) & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+}
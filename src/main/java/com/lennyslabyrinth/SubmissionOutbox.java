@@ -0,0 +1,496 @@
+package com.lennyslabyrinth;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Singleton
+public class SubmissionOutbox
+{
+	private static final File DEFAULT_OUTBOX_DIR = new File(RuneLite.RUNELITE_DIR, "lennys-labyrinth");
+
+	private static final long INITIAL_BACKOFF_MILLIS = 1_000;
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final long SEND_INTERVAL_MILLIS = 250; // Minimum gap between sends while draining
+	private static final long DELIVERY_TIMEOUT_SECONDS = 60;
+	private static final long MAX_ENTRY_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+	private static final int MAX_ATTEMPTS = 12;
+	private static final int MAX_BATCH_SIZE = 16; // Entries sent together in one batch request
+	private static final int COMPACT_THRESHOLD = 256; // Journal records before an empty journal is truncated
+
+	private static final String OP_ADD = "add";
+	private static final String OP_ACK = "ack";
+
+	private final ApiClient apiClient;
+	private final File outboxDir;
+	private final File journalFile;
+	private final Gson gson = WireAdapters.GSON;
+	private final Object lock = new Object();
+	private final TreeSet<Entry> pending = new TreeSet<>(
+		Comparator.comparingLong((Entry e) -> e.capturedAt).thenComparingLong(e -> e.id));
+
+	private ExecutorService drainer;
+	private BufferedWriter journal;
+	private int journalRecords;
+	private long nextId;
+	private Listener listener;
+
+	public interface Listener
+	{
+		// A live submission failed with a transient error and will be retried
+		void onRetryScheduled(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse lastError, long delayMillis);
+
+		// A submission recovered from a previous session has been answered by the server
+		void onRecoveredDelivery(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse response);
+	}
+
+	private static class Entry
+	{
+		final long id;
+		final long capturedAt;
+		final ApiClient.GameStateSubmission submission;
+		final CompletableFuture<ApiClient.ApiResponse> future; // null for entries recovered from disk
+		int attempts;
+		long nextAttemptAt;
+
+		Entry(long id, long capturedAt, ApiClient.GameStateSubmission submission, CompletableFuture<ApiClient.ApiResponse> future)
+		{
+			this.id = id;
+			this.capturedAt = capturedAt;
+			this.submission = submission;
+			this.future = future;
+		}
+	}
+
+	// One line of the append-only journal
+	private static class JournalRecord
+	{
+		String op;
+		long id;
+		long capturedAt;
+		ApiClient.GameStateSubmission submission;
+
+		JournalRecord(String op, long id, long capturedAt, ApiClient.GameStateSubmission submission)
+		{
+			this.op = op;
+			this.id = id;
+			this.capturedAt = capturedAt;
+			this.submission = submission;
+		}
+	}
+
+	@Inject
+	public SubmissionOutbox(ApiClient apiClient)
+	{
+		this(apiClient, DEFAULT_OUTBOX_DIR);
+	}
+
+	// Tests keep their journal away from the player's
+	SubmissionOutbox(ApiClient apiClient, File outboxDir)
+	{
+		this.apiClient = apiClient;
+		this.outboxDir = outboxDir;
+		this.journalFile = new File(outboxDir, "outbox.journal");
+	}
+
+	public void start(Listener listener)
+	{
+		synchronized (lock)
+		{
+			if (drainer != null)
+			{
+				return;
+			}
+
+			this.listener = listener;
+			recoverJournal();
+
+			drainer = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "lennys-labyrinth-outbox");
+				thread.setDaemon(true);
+				return thread;
+			});
+			drainer.execute(this::drainLoop);
+		}
+	}
+
+	public void stop()
+	{
+		List<Entry> abandoned;
+		synchronized (lock)
+		{
+			if (drainer == null)
+			{
+				return;
+			}
+
+			drainer.shutdownNow();
+			drainer = null;
+			closeJournal();
+
+			// Entries stay in the journal and are resent on the next start
+			abandoned = new ArrayList<>(pending);
+			pending.clear();
+		}
+
+		for (Entry entry : abandoned)
+		{
+			if (entry.future != null)
+			{
+				entry.future.complete(ApiClient.ApiResponse.errorWithType("QUEUED",
+					"Saved - will be sent when the plugin restarts"));
+			}
+		}
+	}
+
+	public CompletableFuture<ApiClient.ApiResponse> enqueue(ApiClient.GameStateSubmission submission)
+	{
+		CompletableFuture<ApiClient.ApiResponse> future = new CompletableFuture<>();
+
+		synchronized (lock)
+		{
+			if (drainer == null)
+			{
+				// Not started (or shutting down) - fall back to a direct, non-durable send
+				return apiClient.submitGuess(submission);
+			}
+
+			// Journaled with the request id, so a resend after a restart is recognised as the same submission
+			ApiClient.assignRequestId(submission);
+			Entry entry = new Entry(nextId++, System.currentTimeMillis(), submission, future);
+			appendRecord(new JournalRecord(OP_ADD, entry.id, entry.capturedAt, submission));
+			pending.add(entry);
+			lock.notifyAll();
+		}
+
+		return future;
+	}
+
+	public int getPendingCount()
+	{
+		synchronized (lock)
+		{
+			return pending.size();
+		}
+	}
+
+	private void drainLoop()
+	{
+		try
+		{
+			while (!Thread.currentThread().isInterrupted())
+			{
+				List<Entry> batch = new ArrayList<>();
+				synchronized (lock)
+				{
+					if (pending.isEmpty())
+					{
+						lock.wait();
+						continue;
+					}
+
+					// Strict capture order - later entries wait behind one that is backing off
+					long now = System.currentTimeMillis();
+					long wait = pending.first().nextAttemptAt - now;
+					if (wait > 0)
+					{
+						lock.wait(wait);
+						continue;
+					}
+
+					for (Entry entry : pending)
+					{
+						if (entry.nextAttemptAt > now || batch.size() >= MAX_BATCH_SIZE)
+						{
+							break;
+						}
+						batch.add(entry);
+					}
+				}
+
+				deliver(batch);
+				Thread.sleep(SEND_INTERVAL_MILLIS);
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void deliver(List<Entry> batch) throws InterruptedException
+	{
+		// Everything due at once goes out as one batch request instead of one request per entry
+		List<ApiClient.GameStateSubmission> submissions = new ArrayList<>(batch.size());
+		for (Entry entry : batch)
+		{
+			entry.attempts++;
+			submissions.add(entry.submission);
+		}
+
+		CompletableFuture<List<ApiClient.ApiResponse>> request = apiClient.submitGuesses(submissions);
+		List<ApiClient.ApiResponse> responses;
+		try
+		{
+			responses = request.get(DELIVERY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		catch (TimeoutException e)
+		{
+			// Abort the request before the entries are retried, so the same guess is never in flight twice
+			request.cancel(false);
+			responses = failAll(batch.size(), "No response within " + DELIVERY_TIMEOUT_SECONDS + "s");
+		}
+		catch (ExecutionException | CancellationException e)
+		{
+			responses = failAll(batch.size(), "Network error: " + e.getMessage());
+		}
+
+		for (int i = 0; i < batch.size(); i++)
+		{
+			handleResult(batch.get(i), responses.get(i));
+		}
+	}
+
+	private static List<ApiClient.ApiResponse> failAll(int count, String message)
+	{
+		List<ApiClient.ApiResponse> responses = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+		{
+			responses.add(ApiClient.ApiResponse.errorWithType("NETWORK_ERROR", message));
+		}
+		return responses;
+	}
+
+	private void handleResult(Entry entry, ApiClient.ApiResponse response)
+	{
+		if (isRetryable(response) && entry.attempts < MAX_ATTEMPTS)
+		{
+			long delay = backoffMillis(entry.attempts);
+			synchronized (lock)
+			{
+				entry.nextAttemptAt = System.currentTimeMillis() + delay;
+			}
+
+			log.warn("Submission {} failed (attempt {}), retrying in {} ms: {}", entry.id, entry.attempts, delay, response.message);
+			if (entry.future != null && listener != null)
+			{
+				listener.onRetryScheduled(entry.submission, response, delay);
+			}
+			return;
+		}
+
+		synchronized (lock)
+		{
+			if (!pending.remove(entry))
+			{
+				// Outbox was stopped while the request was in flight
+				return;
+			}
+			appendRecord(new JournalRecord(OP_ACK, entry.id, 0, null));
+			compactIfIdle();
+		}
+
+		if (entry.future != null)
+		{
+			entry.future.complete(response);
+		}
+		else if (listener != null)
+		{
+			listener.onRecoveredDelivery(entry.submission, response);
+		}
+	}
+
+	private static boolean isRetryable(ApiClient.ApiResponse response)
+	{
+		if (response.success || response.errorType == null)
+		{
+			return false;
+		}
+
+		switch (response.errorType)
+		{
+			case "NETWORK_ERROR":
+			case "IO_ERROR":
+			case "SERVER_ERROR":
+			case "CIRCUIT_OPEN":
+			case "OVERLOADED":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private static long backoffMillis(int attempts)
+	{
+		// Exponential backoff with equal jitter so a burst of clients does not retry in lockstep
+		long ceiling = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempts - 1, 20));
+		long half = ceiling / 2;
+		return half + ThreadLocalRandom.current().nextLong(half + 1);
+	}
+
+	private void recoverJournal()
+	{
+		if (!outboxDir.exists() && !outboxDir.mkdirs())
+		{
+			log.warn("Unable to create outbox directory {}", outboxDir);
+		}
+
+		List<JournalRecord> added = new ArrayList<>();
+		if (journalFile.exists())
+		{
+			try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8))
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					JournalRecord record;
+					try
+					{
+						record = gson.fromJson(line, JournalRecord.class);
+					}
+					catch (JsonParseException e)
+					{
+						// A torn write from a crash can only affect the last line
+						log.warn("Skipping unreadable outbox journal record");
+						continue;
+					}
+
+					if (record == null)
+					{
+						continue;
+					}
+
+					if (OP_ADD.equals(record.op) && record.submission != null)
+					{
+						added.add(record);
+					}
+					else if (OP_ACK.equals(record.op))
+					{
+						added.removeIf(r -> r.id == record.id);
+					}
+					nextId = Math.max(nextId, record.id + 1);
+				}
+			}
+			catch (IOException e)
+			{
+				log.warn("Failed to read outbox journal", e);
+			}
+		}
+
+		long cutoff = System.currentTimeMillis() - MAX_ENTRY_AGE_MILLIS;
+		for (JournalRecord record : added)
+		{
+			if (record.capturedAt >= cutoff)
+			{
+				pending.add(new Entry(record.id, record.capturedAt, record.submission, null));
+			}
+		}
+
+		if (!pending.isEmpty())
+		{
+			log.info("Recovered {} unsent submission(s) from the outbox", pending.size());
+		}
+
+		rewriteJournal();
+	}
+
+	// Replaces the journal with one containing only the pending entries
+	private void rewriteJournal()
+	{
+		closeJournal();
+
+		File tempFile = new File(outboxDir, journalFile.getName() + ".tmp");
+		try
+		{
+			try (BufferedWriter writer = Files.newBufferedWriter(tempFile.toPath(), StandardCharsets.UTF_8))
+			{
+				for (Entry entry : pending)
+				{
+					writer.write(gson.toJson(new JournalRecord(OP_ADD, entry.id, entry.capturedAt, entry.submission)));
+					writer.newLine();
+				}
+			}
+			Files.move(tempFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			journal = Files.newBufferedWriter(journalFile.toPath(), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			journalRecords = pending.size();
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to open outbox journal, submissions will not survive a restart", e);
+			journal = null;
+		}
+	}
+
+	private void compactIfIdle()
+	{
+		if (pending.isEmpty() && journalRecords >= COMPACT_THRESHOLD)
+		{
+			rewriteJournal();
+		}
+	}
+
+	private void appendRecord(JournalRecord record)
+	{
+		if (journal == null)
+		{
+			return;
+		}
+
+		try
+		{
+			journal.write(gson.toJson(record));
+			journal.newLine();
+			journal.flush();
+			journalRecords++;
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to append to outbox journal", e);
+		}
+	}
+
+	private void closeJournal()
+	{
+		if (journal == null)
+		{
+			return;
+		}
+
+		try
+		{
+			journal.close();
+		}
+		catch (IOException e)
+		{
+			log.debug("Failed to close outbox journal", e);
+		}
+		journal = null;
+	}
+}
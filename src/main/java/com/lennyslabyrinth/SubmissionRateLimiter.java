@@ -0,0 +1,160 @@
+package com.lennyslabyrinth;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Token bucket per event key and trigger type. Submissions over the rate are deferred until a token is
+// available instead of being dropped, so a macro-dancing player is slowed down rather than ignored.
+// Manual button submissions have a bucket of their own, so automatic triggers can never use up their budget.
+@Slf4j
+@Singleton
+public class SubmissionRateLimiter
+{
+	public static final String MANUAL_TRIGGER = "button";
+
+	// Beyond this a player is far ahead of the limit and the submission is refused outright
+	private static final long MAX_DEFERRAL_MILLIS = TimeUnit.MINUTES.toMillis(2);
+	private static final long IDLE_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	@Inject
+	private LennysLabyrinthConfig config;
+
+	private final Map<String, Bucket> buckets = new HashMap<>();
+	// The submissions themselves, since the executor only hands back its own task wrappers,
+	// which it cancels rather than runs once it has shut down
+	private final Set<Runnable> deferred = new LinkedHashSet<>();
+	private ScheduledExecutorService scheduler;
+
+	private static class Bucket
+	{
+		// Negative while submissions are waiting for tokens
+		double tokens;
+		long updatedAt;
+
+		Bucket(double tokens, long updatedAt)
+		{
+			this.tokens = tokens;
+			this.updatedAt = updatedAt;
+		}
+	}
+
+	public synchronized void start()
+	{
+		if (scheduler == null)
+		{
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "lennys-labyrinth-rate-limiter");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	// Deferred submissions are sent at once instead of being dropped, so the outbox journals them
+	// before it stops and their capture history records get an outcome
+	public void stop()
+	{
+		List<Runnable> waiting;
+		synchronized (this)
+		{
+			if (scheduler == null)
+			{
+				return;
+			}
+
+			scheduler.shutdownNow();
+			scheduler = null;
+			buckets.clear();
+			waiting = new ArrayList<>(deferred);
+			deferred.clear();
+		}
+
+		if (!waiting.isEmpty())
+		{
+			log.info("Handing {} rate-limited submission(s) to the outbox on shutdown", waiting.size());
+		}
+		for (Runnable submission : waiting)
+		{
+			submission.run();
+		}
+	}
+
+	// Takes a token for the submission and returns how long it must wait before being sent,
+	// 0 to send now, or -1 if it is so far over the limit that it should not be sent at all
+	public synchronized long reserve(String eventKey, String trigger)
+	{
+		double ratePerMilli = config.submissionsPerMinute() / 60_000.0;
+		int burst = config.submissionBurst();
+		long now = System.currentTimeMillis();
+
+		evictIdle(now);
+
+		Bucket bucket = buckets.computeIfAbsent(eventKey + '\0' + trigger, k -> new Bucket(burst, now));
+		bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.updatedAt) * ratePerMilli);
+		bucket.updatedAt = now;
+
+		if (bucket.tokens >= 1)
+		{
+			bucket.tokens -= 1;
+			return 0;
+		}
+
+		long delay = (long) Math.ceil((1 - bucket.tokens) / ratePerMilli);
+		if (delay > MAX_DEFERRAL_MILLIS)
+		{
+			log.debug("Refusing {} submission for '{}', {} ms over the rate limit", trigger, eventKey, delay);
+			return -1;
+		}
+
+		bucket.tokens -= 1;
+		log.debug("Deferring {} submission for '{}' by {} ms", trigger, eventKey, delay);
+		return delay;
+	}
+
+	// Runs a deferred submission once its token is available, or when the limiter stops
+	public void defer(Runnable submission, long delayMillis)
+	{
+		synchronized (this)
+		{
+			if (scheduler != null)
+			{
+				deferred.add(submission);
+				scheduler.schedule(() -> runDeferred(submission), delayMillis, TimeUnit.MILLISECONDS);
+				return;
+			}
+		}
+
+		// Not started - nothing to wait on, so send it now
+		submission.run();
+	}
+
+	private void runDeferred(Runnable submission)
+	{
+		synchronized (this)
+		{
+			// Already taken by stop()
+			if (!deferred.remove(submission))
+			{
+				return;
+			}
+		}
+		submission.run();
+	}
+
+	private void evictIdle(long now)
+	{
+		// A bucket that has been idle long enough is full again, which is what a new bucket would be
+		buckets.values().removeIf(bucket -> now - bucket.updatedAt > IDLE_BUCKET_MILLIS && bucket.tokens >= 0);
+	}
+}
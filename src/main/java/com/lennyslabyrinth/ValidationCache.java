@@ -0,0 +1,212 @@
+package com.lennyslabyrinth;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Caches event key validation results and collapses concurrent validations of the same key into one request
+class ValidationCache
+{
+	private static final long POSITIVE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final long NEGATIVE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+	private static final int MAX_ENTRIES = 64;
+
+	private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+	private final Map<String, Load> inFlight = new ConcurrentHashMap<>();
+
+	// Bumped on invalidation so a request that started earlier cannot repopulate the cache
+	private final AtomicLong generation = new AtomicLong();
+
+	private static class CachedResult
+	{
+		final ApiClient.ApiResponse response;
+		final long expiresAt;
+
+		CachedResult(ApiClient.ApiResponse response, long expiresAt)
+		{
+			this.response = response;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	// One shared request and the callers waiting on it. The request is cancelled only when every caller has given up.
+	private static class Load
+	{
+		final CompletableFuture<ApiClient.ApiResponse> result = new CompletableFuture<>();
+		private CompletableFuture<ApiClient.ApiResponse> request;
+		private int waiters;
+		private boolean abandoned;
+
+		// Each caller gets its own dependent future so one caller cannot complete or cancel it for the others
+		synchronized CompletableFuture<ApiClient.ApiResponse> join()
+		{
+			if (abandoned)
+			{
+				return null;
+			}
+
+			waiters++;
+			CompletableFuture<ApiClient.ApiResponse> waiter = result.thenApply(Function.identity());
+			waiter.whenComplete((response, error) -> {
+				if (waiter.isCancelled())
+				{
+					leave();
+				}
+			});
+			return waiter;
+		}
+
+		void start(CompletableFuture<ApiClient.ApiResponse> request)
+		{
+			boolean cancel;
+			synchronized (this)
+			{
+				this.request = request;
+				cancel = abandoned;
+			}
+
+			if (cancel)
+			{
+				request.cancel(false);
+			}
+		}
+
+		private void leave()
+		{
+			CompletableFuture<ApiClient.ApiResponse> toCancel = null;
+			synchronized (this)
+			{
+				if (--waiters == 0 && !result.isDone())
+				{
+					abandoned = true;
+					toCancel = request;
+				}
+			}
+
+			if (toCancel != null)
+			{
+				toCancel.cancel(false);
+			}
+		}
+	}
+
+	CompletableFuture<ApiClient.ApiResponse> get(String eventKey, Function<String, CompletableFuture<ApiClient.ApiResponse>> loader)
+	{
+		while (true)
+		{
+			ApiClient.ApiResponse cached = getIfPresent(eventKey);
+			if (cached != null)
+			{
+				return CompletableFuture.completedFuture(cached);
+			}
+
+			Load load = new Load();
+			Load existing = inFlight.putIfAbsent(eventKey, load);
+			if (existing != null)
+			{
+				CompletableFuture<ApiClient.ApiResponse> waiter = existing.join();
+				if (waiter != null)
+				{
+					return waiter;
+				}
+
+				// Everyone else gave up on that request - start a fresh one
+				inFlight.remove(eventKey, existing);
+				continue;
+			}
+
+			CompletableFuture<ApiClient.ApiResponse> waiter = load.join();
+			long startGeneration = generation.get();
+			CompletableFuture<ApiClient.ApiResponse> request = loader.apply(eventKey);
+			request.whenComplete((response, error) -> {
+				if (error == null && startGeneration == generation.get())
+				{
+					store(eventKey, response);
+				}
+				inFlight.remove(eventKey, load);
+
+				if (error != null)
+				{
+					load.result.completeExceptionally(error);
+				}
+				else
+				{
+					load.result.complete(response);
+				}
+			});
+			load.start(request);
+			return waiter;
+		}
+	}
+
+	ApiClient.ApiResponse getIfPresent(String eventKey)
+	{
+		CachedResult result = results.get(eventKey);
+		if (result == null)
+		{
+			return null;
+		}
+
+		if (result.expiresAt <= System.currentTimeMillis())
+		{
+			results.remove(eventKey, result);
+			return null;
+		}
+		return result.response;
+	}
+
+	void invalidate(String eventKey)
+	{
+		generation.incrementAndGet();
+		results.remove(eventKey);
+		inFlight.remove(eventKey);
+	}
+
+	void invalidateAll()
+	{
+		generation.incrementAndGet();
+		results.clear();
+		inFlight.clear();
+	}
+
+	private void store(String eventKey, ApiClient.ApiResponse response)
+	{
+		long ttl;
+		if (response.success)
+		{
+			ttl = POSITIVE_TTL_MILLIS;
+		}
+		else if ("KEY_NOT_FOUND".equals(response.errorType))
+		{
+			ttl = NEGATIVE_TTL_MILLIS;
+		}
+		else
+		{
+			// Network and server errors say nothing about the key
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		if (results.size() >= MAX_ENTRIES)
+		{
+			evict(now);
+		}
+		results.put(eventKey, new CachedResult(response, now + ttl));
+	}
+
+	private void evict(long now)
+	{
+		results.values().removeIf(result -> result.expiresAt <= now);
+
+		Iterator<String> it = results.keySet().iterator();
+		while (results.size() >= MAX_ENTRIES && it.hasNext())
+		{
+			it.next();
+			it.remove();
+		}
+	}
+}
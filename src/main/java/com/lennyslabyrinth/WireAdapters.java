@@ -0,0 +1,685 @@
+package com.lennyslabyrinth;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lennyslabyrinth.constraints.LocationConstraint;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Hand-written Gson adapters for every wire DTO so serialization never falls back to reflection.
+// Field names and null handling match what reflective Gson produced, so the JSON is unchanged.
+public final class WireAdapters
+{
+	public static final TypeAdapter<ApiClient.WorldCoords> WORLD_COORDS = new TypeAdapter<ApiClient.WorldCoords>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.WorldCoords value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("x").value(value.x);
+			out.name("y").value(value.y);
+			out.name("plane").value(value.plane);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.WorldCoords read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			int x = 0;
+			int y = 0;
+			int plane = 0;
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "x":
+						x = in.nextInt();
+						break;
+					case "y":
+						y = in.nextInt();
+						break;
+					case "plane":
+						plane = in.nextInt();
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return new ApiClient.WorldCoords(x, y, plane);
+		}
+	};
+
+	public static final TypeAdapter<ApiClient.LocalCoords> LOCAL_COORDS = new TypeAdapter<ApiClient.LocalCoords>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.LocalCoords value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("sceneX").value(value.sceneX);
+			out.name("sceneY").value(value.sceneY);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.LocalCoords read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			int sceneX = 0;
+			int sceneY = 0;
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "sceneX":
+						sceneX = in.nextInt();
+						break;
+					case "sceneY":
+						sceneY = in.nextInt();
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return new ApiClient.LocalCoords(sceneX, sceneY);
+		}
+	};
+
+	public static final TypeAdapter<ApiClient.LocationData> LOCATION_DATA = new TypeAdapter<ApiClient.LocationData>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.LocationData value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("world");
+			WORLD_COORDS.write(out, value.world);
+			out.name("local");
+			LOCAL_COORDS.write(out, value.local);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.LocationData read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			ApiClient.WorldCoords world = null;
+			ApiClient.LocalCoords local = null;
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "world":
+						world = WORLD_COORDS.read(in);
+						break;
+					case "local":
+						local = LOCAL_COORDS.read(in);
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return new ApiClient.LocationData(world, local);
+		}
+	};
+
+	public static final TypeAdapter<ApiClient.ItemData> ITEM_DATA = new TypeAdapter<ApiClient.ItemData>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.ItemData value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("slot").value(value.slot);
+			out.name("id").value(value.id);
+			out.name("quantity").value(value.quantity);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.ItemData read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			int slot = 0;
+			int id = 0;
+			int quantity = 0;
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "slot":
+						slot = in.nextInt();
+						break;
+					case "id":
+						id = in.nextInt();
+						break;
+					case "quantity":
+						quantity = in.nextInt();
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return new ApiClient.ItemData(slot, id, quantity);
+		}
+	};
+
+	public static final TypeAdapter<List<ApiClient.ItemData>> ITEM_LIST = listOf(ITEM_DATA);
+
+	public static final TypeAdapter<ApiClient.TriggerData> TRIGGER_DATA = new TypeAdapter<ApiClient.TriggerData>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.TriggerData value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("type").value(value.type);
+			out.name("emote_id").value(value.emote_id);
+			out.name("npc_id").value(value.npc_id);
+			out.name("interaction_type").value(value.interaction_type);
+			out.name("target_id").value(value.target_id);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.TriggerData read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			String type = null;
+			Integer emoteId = null;
+			Integer npcId = null;
+			String interactionType = null;
+			Integer targetId = null;
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "type":
+						type = readString(in);
+						break;
+					case "emote_id":
+						emoteId = readInteger(in);
+						break;
+					case "npc_id":
+						npcId = readInteger(in);
+						break;
+					case "interaction_type":
+						interactionType = readString(in);
+						break;
+					case "target_id":
+						targetId = readInteger(in);
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return new ApiClient.TriggerData(type, emoteId, npcId, interactionType, targetId);
+		}
+	};
+
+	public static final TypeAdapter<List<ApiClient.TriggerData>> TRIGGER_LIST = listOf(TRIGGER_DATA);
+
+	public static final TypeAdapter<ApiClient.GameStateSubmission> GAME_STATE_SUBMISSION = new TypeAdapter<ApiClient.GameStateSubmission>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.GameStateSubmission value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("location");
+			LOCATION_DATA.write(out, value.location);
+			out.name("inventory");
+			ITEM_LIST.write(out, value.inventory);
+			out.name("worn_items");
+			ITEM_LIST.write(out, value.worn_items);
+			out.name("emote_id").value(value.emote_id);
+			out.name("npc_id").value(value.npc_id);
+			out.name("interaction_type").value(value.interaction_type);
+			out.name("event_key").value(value.event_key);
+			out.name("rsn").value(value.rsn);
+			out.name("triggers");
+			TRIGGER_LIST.write(out, value.triggers);
+			out.name("request_id").value(value.request_id);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.GameStateSubmission read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			ApiClient.LocationData location = null;
+			List<ApiClient.ItemData> inventory = null;
+			List<ApiClient.ItemData> wornItems = null;
+			Integer emoteId = null;
+			Integer npcId = null;
+			String interactionType = null;
+			String eventKey = null;
+			String rsn = null;
+			List<ApiClient.TriggerData> triggers = null;
+			String requestId = null;
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "location":
+						location = LOCATION_DATA.read(in);
+						break;
+					case "inventory":
+						inventory = ITEM_LIST.read(in);
+						break;
+					case "worn_items":
+						wornItems = ITEM_LIST.read(in);
+						break;
+					case "emote_id":
+						emoteId = readInteger(in);
+						break;
+					case "npc_id":
+						npcId = readInteger(in);
+						break;
+					case "interaction_type":
+						interactionType = readString(in);
+						break;
+					case "event_key":
+						eventKey = readString(in);
+						break;
+					case "rsn":
+						rsn = readString(in);
+						break;
+					case "triggers":
+						triggers = TRIGGER_LIST.read(in);
+						break;
+					case "request_id":
+						requestId = readString(in);
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			ApiClient.GameStateSubmission submission = new ApiClient.GameStateSubmission(location, inventory, wornItems,
+				emoteId, npcId, interactionType, eventKey, rsn);
+			submission.triggers = triggers;
+			submission.request_id = requestId;
+			return submission;
+		}
+	};
+
+	private static final TypeAdapter<String> STRING = new TypeAdapter<String>()
+	{
+		@Override
+		public void write(JsonWriter out, String value) throws IOException
+		{
+			out.value(value);
+		}
+
+		@Override
+		public String read(JsonReader in) throws IOException
+		{
+			return readString(in);
+		}
+	};
+
+	private static final TypeAdapter<List<String>> STRING_LIST = listOf(STRING);
+
+	// Same field names as the answer builder's constraint beans
+	public static final TypeAdapter<LocationConstraint> LOCATION_CONSTRAINT = new TypeAdapter<LocationConstraint>()
+	{
+		@Override
+		public void write(JsonWriter out, LocationConstraint value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("type").value(value.getType());
+			out.name("minX").value(value.getMinX());
+			out.name("maxX").value(value.getMaxX());
+			out.name("minY").value(value.getMinY());
+			out.name("maxY").value(value.getMaxY());
+			out.name("exactX").value(value.getExactX());
+			out.name("exactY").value(value.getExactY());
+			out.name("plane").value(value.getPlane());
+			out.name("tolerance").value(value.getTolerance());
+			out.endObject();
+		}
+
+		@Override
+		public LocationConstraint read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			LocationConstraint constraint = new LocationConstraint();
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "type":
+						constraint.setType(readString(in));
+						break;
+					case "minX":
+						constraint.setMinX(readInteger(in));
+						break;
+					case "maxX":
+						constraint.setMaxX(readInteger(in));
+						break;
+					case "minY":
+						constraint.setMinY(readInteger(in));
+						break;
+					case "maxY":
+						constraint.setMaxY(readInteger(in));
+						break;
+					case "exactX":
+						constraint.setExactX(readInteger(in));
+						break;
+					case "exactY":
+						constraint.setExactY(readInteger(in));
+						break;
+					case "plane":
+						constraint.setPlane(readInteger(in));
+						break;
+					case "tolerance":
+						constraint.setTolerance(readInteger(in));
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return constraint;
+		}
+	};
+
+	public static final TypeAdapter<List<LocationConstraint>> LOCATION_CONSTRAINT_LIST = listOf(LOCATION_CONSTRAINT);
+
+	public static final TypeAdapter<ApiClient.ApiResponse> API_RESPONSE = new TypeAdapter<ApiClient.ApiResponse>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.ApiResponse value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("success").value(value.success);
+			out.name("message").value(value.message);
+			out.name("errorType").value(value.errorType);
+			if (value.triggerSources != null)
+			{
+				out.name("trigger_sources");
+				STRING_LIST.write(out, value.triggerSources);
+			}
+			if (value.zones != null)
+			{
+				out.name("zones");
+				LOCATION_CONSTRAINT_LIST.write(out, value.zones);
+			}
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.ApiResponse read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			ApiClient.ApiResponse response = new ApiClient.ApiResponse(false, null);
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "success":
+						response.success = !skipNull(in) && in.nextBoolean();
+						break;
+					case "message":
+						response.message = readString(in);
+						break;
+					case "errorType":
+						response.errorType = readString(in);
+						break;
+					case "trigger_sources":
+						response.triggerSources = STRING_LIST.read(in);
+						break;
+					case "zones":
+						response.zones = LOCATION_CONSTRAINT_LIST.read(in);
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+			return response;
+		}
+	};
+
+	public static final TypeAdapter<List<ApiClient.GameStateSubmission>> SUBMISSION_LIST = listOf(GAME_STATE_SUBMISSION);
+
+	public static final TypeAdapter<ApiClient.BatchSubmission> BATCH_SUBMISSION = new TypeAdapter<ApiClient.BatchSubmission>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.BatchSubmission value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("submissions");
+			SUBMISSION_LIST.write(out, value.submissions);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.BatchSubmission read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			List<ApiClient.GameStateSubmission> submissions = null;
+			in.beginObject();
+			while (in.hasNext())
+			{
+				if ("submissions".equals(in.nextName()))
+				{
+					submissions = SUBMISSION_LIST.read(in);
+				}
+				else
+				{
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			return new ApiClient.BatchSubmission(submissions);
+		}
+	};
+
+	public static final TypeAdapter<List<ApiClient.ApiResponse>> RESPONSE_LIST = listOf(API_RESPONSE);
+
+	public static final TypeAdapter<ApiClient.BatchResponse> BATCH_RESPONSE = new TypeAdapter<ApiClient.BatchResponse>()
+	{
+		@Override
+		public void write(JsonWriter out, ApiClient.BatchResponse value) throws IOException
+		{
+			if (value == null)
+			{
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("results");
+			RESPONSE_LIST.write(out, value.results);
+			out.endObject();
+		}
+
+		@Override
+		public ApiClient.BatchResponse read(JsonReader in) throws IOException
+		{
+			if (skipNull(in))
+			{
+				return null;
+			}
+			ApiClient.BatchResponse response = new ApiClient.BatchResponse();
+			in.beginObject();
+			while (in.hasNext())
+			{
+				if ("results".equals(in.nextName()))
+				{
+					response.results = RESPONSE_LIST.read(in);
+				}
+				else
+				{
+					in.skipValue();
+				}
+			}
+			in.endObject();
+			return response;
+		}
+	};
+
+	// The one Gson instance used for everything that goes over the wire or into the outbox journal
+	public static final Gson GSON = new GsonBuilder()
+		.registerTypeAdapter(ApiClient.WorldCoords.class, WORLD_COORDS)
+		.registerTypeAdapter(ApiClient.LocalCoords.class, LOCAL_COORDS)
+		.registerTypeAdapter(ApiClient.LocationData.class, LOCATION_DATA)
+		.registerTypeAdapter(ApiClient.ItemData.class, ITEM_DATA)
+		.registerTypeAdapter(ApiClient.TriggerData.class, TRIGGER_DATA)
+		.registerTypeAdapter(ApiClient.GameStateSubmission.class, GAME_STATE_SUBMISSION)
+		.registerTypeAdapter(ApiClient.ApiResponse.class, API_RESPONSE)
+		.registerTypeAdapter(ApiClient.BatchSubmission.class, BATCH_SUBMISSION)
+		.registerTypeAdapter(ApiClient.BatchResponse.class, BATCH_RESPONSE)
+		.create();
+
+	private WireAdapters()
+	{
+	}
+
+	private static <T> TypeAdapter<List<T>> listOf(TypeAdapter<T> elementAdapter)
+	{
+		return new TypeAdapter<List<T>>()
+		{
+			@Override
+			public void write(JsonWriter out, List<T> value) throws IOException
+			{
+				if (value == null)
+				{
+					out.nullValue();
+					return;
+				}
+				out.beginArray();
+				for (T element : value)
+				{
+					elementAdapter.write(out, element);
+				}
+				out.endArray();
+			}
+
+			@Override
+			public List<T> read(JsonReader in) throws IOException
+			{
+				if (skipNull(in))
+				{
+					return null;
+				}
+				List<T> list = new ArrayList<>();
+				in.beginArray();
+				while (in.hasNext())
+				{
+					list.add(elementAdapter.read(in));
+				}
+				in.endArray();
+				return list;
+			}
+		};
+	}
+
+	private static boolean skipNull(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return true;
+		}
+		return false;
+	}
+
+	private static Integer readInteger(JsonReader in) throws IOException
+	{
+		return skipNull(in) ? null : in.nextInt();
+	}
+
+	private static String readString(JsonReader in) throws IOException
+	{
+		return skipNull(in) ? null : in.nextString();
+	}
+}
@@ -0,0 +1,52 @@
+package com.lennyslabyrinth.constraints;
+
+import com.lennyslabyrinth.ApiClient;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+// An answer's constraints after ConstraintCompiler. Immutable, so it can be shared between threads.
+public final class CompiledAnswer
+{
+	// As authored, for per-constraint results
+	private final ConstraintCompiler.Check[] checks;
+	// Cheapest and most selective first, for matches()
+	private final ConstraintCompiler.Check[] ordered;
+
+	CompiledAnswer(ConstraintCompiler.Check[] checks)
+	{
+		this.checks = checks;
+		this.ordered = checks.clone();
+		// Stable, so equal costs keep the authored order
+		Arrays.sort(ordered, Comparator.comparingInt(check -> check.cost));
+	}
+
+	public int size()
+	{
+		return checks.length;
+	}
+
+	// True if every constraint passes; stops at the first one that fails
+	public boolean matches(ApiClient.GameStateSubmission state)
+	{
+		for (ConstraintCompiler.Check check : ordered)
+		{
+			if (!check.test(state))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Result of each constraint, in the order they were authored
+	public boolean[] evaluate(ApiClient.GameStateSubmission state)
+	{
+		boolean[] passed = new boolean[checks.length];
+		for (int i = 0; i < checks.length; i++)
+		{
+			passed[i] = checks[i].test(state);
+		}
+		return passed;
+	}
+}
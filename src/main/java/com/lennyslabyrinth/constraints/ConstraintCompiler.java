@@ -0,0 +1,512 @@
+package com.lennyslabyrinth.constraints;
+
+import com.lennyslabyrinth.ApiClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Turns constraints into specialised checks once, so testing a capture is a few integer comparisons
+// instead of re-reading every field. Beans are converted to ConstraintSpecs first, and compiled answers
+// are cached by those specs.
+public final class ConstraintCompiler
+{
+	// Lower runs first: cheap integer checks that usually decide the result, then scans of the item lists.
+	// The event key almost always matches, so it goes last.
+	private static final int COST_INVALID = 0;
+	private static final int COST_LOCATION = 1;
+	private static final int COST_ACTION = 2;
+	private static final int COST_EQUIPMENT = 3;
+	private static final int COST_INVENTORY = 4;
+	private static final int COST_EVENT_KEY = 5;
+
+	private static final int ANY = -1;
+	private static final int MAX_CACHED = 16;
+
+	// Keyed by content: specs compare field by field, so an edited constraint compiles again
+	private static final Map<List<ConstraintSpec>, CompiledAnswer> cache = new LinkedHashMap<List<ConstraintSpec>, CompiledAnswer>(MAX_CACHED, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<ConstraintSpec>, CompiledAnswer> eldest)
+		{
+			return size() > MAX_CACHED;
+		}
+	};
+
+	private ConstraintCompiler()
+	{
+	}
+
+	public static CompiledAnswer compile(List<Constraint> constraints)
+	{
+		return compileSpecs(ConstraintSpec.of(constraints));
+	}
+
+	// Null entries stand for constraints of an unknown class and never pass
+	public static CompiledAnswer compileSpecs(List<ConstraintSpec> specs)
+	{
+		synchronized (cache)
+		{
+			CompiledAnswer compiled = cache.get(specs);
+			if (compiled == null)
+			{
+				List<ConstraintSpec> key = Collections.unmodifiableList(new ArrayList<>(specs));
+				compiled = new CompiledAnswer(compileAll(key));
+				cache.put(key, compiled);
+			}
+			return compiled;
+		}
+	}
+
+	private static Check[] compileAll(List<ConstraintSpec> specs)
+	{
+		Check[] checks = new Check[specs.size()];
+		for (int i = 0; i < checks.length; i++)
+		{
+			checks[i] = compileSpec(specs.get(i));
+		}
+		return checks;
+	}
+
+	private static Check compileSpec(ConstraintSpec spec)
+	{
+		if (spec == null || spec.type == null)
+		{
+			return NEVER;
+		}
+		if (spec instanceof ConstraintSpec.Location)
+		{
+			return compileLocation((ConstraintSpec.Location) spec);
+		}
+		if (spec instanceof ConstraintSpec.Items)
+		{
+			ConstraintSpec.Items items = (ConstraintSpec.Items) spec;
+			return items.worn ? compileEquipment(items) : compileInventory(items);
+		}
+		if (spec instanceof ConstraintSpec.Action)
+		{
+			return compileAction((ConstraintSpec.Action) spec);
+		}
+		if (spec instanceof ConstraintSpec.EventKey)
+		{
+			return compileEventKey((ConstraintSpec.EventKey) spec);
+		}
+		return NEVER;
+	}
+
+	// Every location shape becomes a box: exact is a single tile, tolerance a square around one
+	private static Check compileLocation(ConstraintSpec.Location spec)
+	{
+		int plane = isSet(spec.plane) ? spec.plane : ANY;
+		switch (spec.type)
+		{
+			case "exact":
+				if (!isSet(spec.exactX) || !isSet(spec.exactY))
+				{
+					return NEVER;
+				}
+				return new LocationBox(spec.exactX, spec.exactX, spec.exactY, spec.exactY, plane);
+			case "bounds":
+				// UNSET is Integer.MIN_VALUE, which already means no lower limit
+				return new LocationBox(spec.minX, isSet(spec.maxX) ? spec.maxX : Integer.MAX_VALUE,
+					spec.minY, isSet(spec.maxY) ? spec.maxY : Integer.MAX_VALUE, plane);
+			case "tolerance":
+				if (!isSet(spec.exactX) || !isSet(spec.exactY) || !isSet(spec.tolerance))
+				{
+					return NEVER;
+				}
+				return new LocationBox(clamp((long) spec.exactX - spec.tolerance), clamp((long) spec.exactX + spec.tolerance),
+					clamp((long) spec.exactY - spec.tolerance), clamp((long) spec.exactY + spec.tolerance), plane);
+			default:
+				return NEVER;
+		}
+	}
+
+	private static Check compileInventory(ConstraintSpec.Items spec)
+	{
+		int minQuantity = isSet(spec.minQuantity) ? spec.minQuantity : 1;
+		switch (spec.type)
+		{
+			case "contains":
+				return !isSet(spec.itemId) ? NEVER
+					: new ItemInSlot(false, spec.itemId, isSet(spec.requiredSlot) ? spec.requiredSlot : ANY, minQuantity);
+			case "any_of":
+				return spec.itemIds == null ? NEVER : new AnyItem(false, spec.itemIds);
+			case "exact":
+				return !isSet(spec.itemId) || !isSet(spec.slot) ? NEVER
+					: new ItemInSlot(false, spec.itemId, spec.slot, minQuantity);
+			case "minimum_quantity":
+				return !isSet(spec.itemId) ? NEVER : new ItemTotal(spec.itemId, minQuantity);
+			default:
+				return NEVER;
+		}
+	}
+
+	private static Check compileEquipment(ConstraintSpec.Items spec)
+	{
+		int minQuantity = isSet(spec.minQuantity) ? spec.minQuantity : 1;
+		switch (spec.type)
+		{
+			case "contains":
+				return !isSet(spec.itemId) ? NEVER : new ItemInSlot(true, spec.itemId, ANY, minQuantity);
+			case "exact_slot":
+				return !isSet(spec.itemId) || !isSet(spec.slot) ? NEVER
+					: new ItemInSlot(true, spec.itemId, spec.slot, minQuantity);
+			case "any_of":
+				return spec.itemIds == null ? NEVER : new AnyItem(true, spec.itemIds);
+			default:
+				return NEVER;
+		}
+	}
+
+	private static Check compileAction(ConstraintSpec.Action spec)
+	{
+		switch (spec.type)
+		{
+			case "emote":
+				return !isSet(spec.emoteId) ? NEVER : new EmoteAction(new int[]{spec.emoteId});
+			case "any_emote":
+				// No list means any emote at all
+				return new EmoteAction(spec.emoteIds);
+			case "npc_interaction":
+				return !isSet(spec.npcId) ? NEVER : new NpcAction(new int[]{spec.npcId}, interactionOptions(spec));
+			case "any_npc":
+				return new NpcAction(spec.npcIds, interactionOptions(spec));
+			default:
+				return NEVER;
+		}
+	}
+
+	// Null means any option
+	private static String[] interactionOptions(ConstraintSpec.Action spec)
+	{
+		return spec.interactionType != null ? new String[]{spec.interactionType} : spec.interactionTypes;
+	}
+
+	private static Check compileEventKey(ConstraintSpec.EventKey spec)
+	{
+		switch (spec.type)
+		{
+			case "exact":
+				return spec.exactKey == null ? NEVER : new EventKeyCheck(spec.exactKey, EventKeyCheck.EXACT);
+			case "prefix":
+				return spec.prefix == null ? NEVER : new EventKeyCheck(spec.prefix, EventKeyCheck.PREFIX);
+			case "suffix":
+				return spec.suffix == null ? NEVER : new EventKeyCheck(spec.suffix, EventKeyCheck.SUFFIX);
+			case "any_of":
+				return spec.allowedKeys == null ? NEVER : new EventKeyAnyOf(spec.allowedKeys);
+			default:
+				return NEVER;
+		}
+	}
+
+	private static boolean isSet(int value)
+	{
+		return ConstraintSpec.isSet(value);
+	}
+
+	private static int clamp(long value)
+	{
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+	}
+
+	abstract static class Check
+	{
+		final int cost;
+
+		Check(int cost)
+		{
+			this.cost = cost;
+		}
+
+		abstract boolean test(ApiClient.GameStateSubmission state);
+	}
+
+	// Constraints that can never pass: unknown types and missing required fields
+	private static final Check NEVER = new Check(COST_INVALID)
+	{
+		@Override
+		boolean test(ApiClient.GameStateSubmission state)
+		{
+			return false;
+		}
+	};
+
+	private static final class LocationBox extends Check
+	{
+		private final int minX;
+		private final int maxX;
+		private final int minY;
+		private final int maxY;
+		private final int plane;
+
+		LocationBox(int minX, int maxX, int minY, int maxY, int plane)
+		{
+			super(COST_LOCATION);
+			this.minX = minX;
+			this.maxX = maxX;
+			this.minY = minY;
+			this.maxY = maxY;
+			this.plane = plane;
+		}
+
+		@Override
+		boolean test(ApiClient.GameStateSubmission state)
+		{
+			if (state.location == null || state.location.world == null)
+			{
+				return false;
+			}
+
+			ApiClient.WorldCoords world = state.location.world;
+			return world.x >= minX && world.x <= maxX && world.y >= minY && world.y <= maxY
+				&& (plane == ANY || world.plane == plane);
+		}
+	}
+
+	private abstract static class ItemCheck extends Check
+	{
+		private final boolean worn;
+
+		ItemCheck(boolean worn)
+		{
+			super(worn ? COST_EQUIPMENT : COST_INVENTORY);
+			this.worn = worn;
+		}
+
+		@Override
+		boolean test(ApiClient.GameStateSubmission state)
+		{
+			List<ApiClient.ItemData> items = worn ? state.worn_items : state.inventory;
+			return items != null && test(items);
+		}
+
+		abstract boolean test(List<ApiClient.ItemData> items);
+	}
+
+	private static final class ItemInSlot extends ItemCheck
+	{
+		private final int itemId;
+		private final int slot;
+		private final int minQuantity;
+
+		ItemInSlot(boolean worn, int itemId, int slot, int minQuantity)
+		{
+			super(worn);
+			this.itemId = itemId;
+			this.slot = slot;
+			this.minQuantity = minQuantity;
+		}
+
+		@Override
+		boolean test(List<ApiClient.ItemData> items)
+		{
+			for (int i = 0, size = items.size(); i < size; i++)
+			{
+				ApiClient.ItemData item = items.get(i);
+				if (item.id == itemId && (slot == ANY || item.slot == slot) && item.quantity >= minQuantity)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final class AnyItem extends ItemCheck
+	{
+		private final int[] itemIds;
+
+		AnyItem(boolean worn, int[] itemIds)
+		{
+			super(worn);
+			this.itemIds = itemIds;
+		}
+
+		@Override
+		boolean test(List<ApiClient.ItemData> items)
+		{
+			for (int i = 0, size = items.size(); i < size; i++)
+			{
+				if (ConstraintSpec.contains(itemIds, items.get(i).id))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final class ItemTotal extends ItemCheck
+	{
+		private final int itemId;
+		private final int minQuantity;
+
+		ItemTotal(int itemId, int minQuantity)
+		{
+			super(false);
+			this.itemId = itemId;
+			this.minQuantity = minQuantity;
+		}
+
+		@Override
+		boolean test(List<ApiClient.ItemData> items)
+		{
+			long total = 0;
+			for (int i = 0, size = items.size(); i < size; i++)
+			{
+				ApiClient.ItemData item = items.get(i);
+				if (item.id == itemId)
+				{
+					total += item.quantity;
+				}
+			}
+			return total >= minQuantity;
+		}
+	}
+
+	// Every trigger from the capture counts, not just the one in the top-level fields
+	private abstract static class ActionCheck extends Check
+	{
+		ActionCheck()
+		{
+			super(COST_ACTION);
+		}
+
+		@Override
+		boolean test(ApiClient.GameStateSubmission state)
+		{
+			if (state.triggers == null)
+			{
+				return test(state.emote_id, state.npc_id, state.interaction_type);
+			}
+
+			for (int i = 0, size = state.triggers.size(); i < size; i++)
+			{
+				ApiClient.TriggerData trigger = state.triggers.get(i);
+				if (test(trigger.emote_id, trigger.npc_id, trigger.interaction_type))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		abstract boolean test(Integer emoteId, Integer npcId, String interactionType);
+
+		// Null ids means any id
+		static boolean contains(int[] ids, int id)
+		{
+			return ids == null || ConstraintSpec.contains(ids, id);
+		}
+	}
+
+	private static final class EmoteAction extends ActionCheck
+	{
+		private final int[] emoteIds;
+
+		EmoteAction(int[] emoteIds)
+		{
+			this.emoteIds = emoteIds;
+		}
+
+		@Override
+		boolean test(Integer emoteId, Integer npcId, String interactionType)
+		{
+			return emoteId != null && contains(emoteIds, emoteId);
+		}
+	}
+
+	private static final class NpcAction extends ActionCheck
+	{
+		private final int[] npcIds;
+		private final String[] options;
+
+		NpcAction(int[] npcIds, String[] options)
+		{
+			this.npcIds = npcIds;
+			this.options = options;
+		}
+
+		@Override
+		boolean test(Integer emoteId, Integer npcId, String interactionType)
+		{
+			if (npcId == null || !contains(npcIds, npcId))
+			{
+				return false;
+			}
+			if (options == null)
+			{
+				return true;
+			}
+
+			// Menu options are compared case-insensitively
+			for (String option : options)
+			{
+				if (option.equalsIgnoreCase(interactionType))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private static final class EventKeyCheck extends Check
+	{
+		static final int EXACT = 0;
+		static final int PREFIX = 1;
+		static final int SUFFIX = 2;
+
+		private final String value;
+		private final int mode;
+
+		EventKeyCheck(String value, int mode)
+		{
+			super(COST_EVENT_KEY);
+			this.value = value;
+			this.mode = mode;
+		}
+
+		@Override
+		boolean test(ApiClient.GameStateSubmission state)
+		{
+			String eventKey = state.event_key;
+			if (eventKey == null)
+			{
+				return false;
+			}
+
+			switch (mode)
+			{
+				case PREFIX:
+					return eventKey.startsWith(value);
+				case SUFFIX:
+					return eventKey.endsWith(value);
+				default:
+					return eventKey.equals(value);
+			}
+		}
+	}
+
+	private static final class EventKeyAnyOf extends Check
+	{
+		// Sorted
+		private final String[] keys;
+
+		EventKeyAnyOf(String[] keys)
+		{
+			super(COST_EVENT_KEY);
+			this.keys = keys;
+		}
+
+		@Override
+		boolean test(ApiClient.GameStateSubmission state)
+		{
+			return state.event_key != null && Arrays.binarySearch(keys, state.event_key) >= 0;
+		}
+	}
+}
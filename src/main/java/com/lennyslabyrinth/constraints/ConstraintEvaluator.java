@@ -0,0 +1,44 @@
+package com.lennyslabyrinth.constraints;
+
+import com.lennyslabyrinth.ApiClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Checks constraints against a captured game state locally, without asking the server.
+// Missing optional fields widen a constraint (no plane means any plane); missing required fields fail it.
+public final class ConstraintEvaluator
+{
+	public static final class Result
+	{
+		public final Constraint constraint;
+		public final boolean passed;
+
+		Result(Constraint constraint, boolean passed)
+		{
+			this.constraint = constraint;
+			this.passed = passed;
+		}
+	}
+
+	private ConstraintEvaluator()
+	{
+	}
+
+	public static List<Result> evaluate(List<Constraint> constraints, ApiClient.GameStateSubmission state)
+	{
+		boolean[] passed = ConstraintCompiler.compile(constraints).evaluate(state);
+		List<Result> results = new ArrayList<>(passed.length);
+		for (int i = 0; i < passed.length; i++)
+		{
+			results.add(new Result(constraints.get(i), passed[i]));
+		}
+		return results;
+	}
+
+	// Whether the whole answer accepts the capture
+	public static boolean matches(List<Constraint> constraints, ApiClient.GameStateSubmission state)
+	{
+		return ConstraintCompiler.compile(constraints).matches(state);
+	}
+}
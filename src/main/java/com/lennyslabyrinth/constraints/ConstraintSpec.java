@@ -0,0 +1,418 @@
+package com.lennyslabyrinth.constraints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// Immutable, primitive form of a constraint bean. Optional numbers are plain ints with UNSET for "not given",
+// and ID sets are sorted, duplicate-free int arrays tested by binary search. Specs compare by content,
+// so a list of them can key a cache. The beans stay the editable and wire form; of() and toBean() convert
+// between the two, and a converted bean serializes the same as the original apart from set order and duplicates.
+// Arrays are package-private so nothing outside can change them.
+public abstract class ConstraintSpec
+{
+	public static final int UNSET = Integer.MIN_VALUE;
+
+	public final String type;
+
+	// Cached like String's, since specs are used as cache keys
+	private int hash;
+
+	private ConstraintSpec(String type)
+	{
+		this.type = type;
+	}
+
+	public abstract Constraint toBean();
+
+	abstract int computeHash();
+
+	@Override
+	public final int hashCode()
+	{
+		int h = hash;
+		if (h == 0)
+		{
+			h = computeHash();
+			hash = h;
+		}
+		return h;
+	}
+
+	// Null for constraint classes this model does not know
+	public static ConstraintSpec of(Constraint constraint)
+	{
+		if (constraint instanceof LocationConstraint)
+		{
+			return new Location((LocationConstraint) constraint);
+		}
+		if (constraint instanceof InventoryConstraint)
+		{
+			return new Items((InventoryConstraint) constraint);
+		}
+		if (constraint instanceof EquipmentConstraint)
+		{
+			return new Items((EquipmentConstraint) constraint);
+		}
+		if (constraint instanceof ActionConstraint)
+		{
+			return new Action((ActionConstraint) constraint);
+		}
+		if (constraint instanceof EventKeyConstraint)
+		{
+			return new EventKey((EventKeyConstraint) constraint);
+		}
+		return null;
+	}
+
+	public static List<ConstraintSpec> of(List<Constraint> constraints)
+	{
+		List<ConstraintSpec> specs = new ArrayList<>(constraints.size());
+		for (Constraint constraint : constraints)
+		{
+			specs.add(of(constraint));
+		}
+		return specs;
+	}
+
+	public static boolean isSet(int value)
+	{
+		return value != UNSET;
+	}
+
+	// ids must come from this class: sorted and duplicate-free
+	static boolean contains(int[] ids, int id)
+	{
+		return Arrays.binarySearch(ids, id) >= 0;
+	}
+
+	static int unbox(Integer value)
+	{
+		return value != null ? value : UNSET;
+	}
+
+	static Integer box(int value)
+	{
+		return value != UNSET ? value : null;
+	}
+
+	// Null stays null so "no list" and "empty list" remain different; null elements are dropped
+	static int[] toIdSet(List<Integer> ids)
+	{
+		if (ids == null)
+		{
+			return null;
+		}
+		int[] set = new int[ids.size()];
+		int size = 0;
+		for (Integer id : ids)
+		{
+			if (id != null)
+			{
+				set[size++] = id;
+			}
+		}
+		Arrays.sort(set, 0, size);
+
+		int unique = 0;
+		for (int i = 0; i < size; i++)
+		{
+			if (unique == 0 || set[unique - 1] != set[i])
+			{
+				set[unique++] = set[i];
+			}
+		}
+		return unique == set.length ? set : Arrays.copyOf(set, unique);
+	}
+
+	static List<Integer> fromIdSet(int[] ids)
+	{
+		if (ids == null)
+		{
+			return null;
+		}
+		List<Integer> list = new ArrayList<>(ids.length);
+		for (int id : ids)
+		{
+			list.add(id);
+		}
+		return list;
+	}
+
+	static String[] toStrings(List<String> values, boolean sorted)
+	{
+		if (values == null)
+		{
+			return null;
+		}
+
+		List<String> strings = new ArrayList<>(values.size());
+		for (String value : values)
+		{
+			if (value != null && (!sorted || !strings.contains(value)))
+			{
+				strings.add(value);
+			}
+		}
+		String[] array = strings.toArray(new String[0]);
+		if (sorted)
+		{
+			Arrays.sort(array);
+		}
+		return array;
+	}
+
+	static List<String> fromStrings(String[] values)
+	{
+		return values != null ? new ArrayList<>(Arrays.asList(values)) : null;
+	}
+
+	public static final class Location extends ConstraintSpec
+	{
+		public final int minX;
+		public final int maxX;
+		public final int minY;
+		public final int maxY;
+		public final int exactX;
+		public final int exactY;
+		public final int plane;
+		public final int tolerance;
+
+		Location(LocationConstraint bean)
+		{
+			super(bean.getType());
+			minX = unbox(bean.getMinX());
+			maxX = unbox(bean.getMaxX());
+			minY = unbox(bean.getMinY());
+			maxY = unbox(bean.getMaxY());
+			exactX = unbox(bean.getExactX());
+			exactY = unbox(bean.getExactY());
+			plane = unbox(bean.getPlane());
+			tolerance = unbox(bean.getTolerance());
+		}
+
+		@Override
+		public LocationConstraint toBean()
+		{
+			LocationConstraint bean = new LocationConstraint(type);
+			bean.setMinX(box(minX));
+			bean.setMaxX(box(maxX));
+			bean.setMinY(box(minY));
+			bean.setMaxY(box(maxY));
+			bean.setExactX(box(exactX));
+			bean.setExactY(box(exactY));
+			bean.setPlane(box(plane));
+			bean.setTolerance(box(tolerance));
+			return bean;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Location) || o.hashCode() != hashCode())
+			{
+				return false;
+			}
+			Location other = (Location) o;
+			return Objects.equals(type, other.type) && minX == other.minX && maxX == other.maxX
+				&& minY == other.minY && maxY == other.maxY && exactX == other.exactX && exactY == other.exactY
+				&& plane == other.plane && tolerance == other.tolerance;
+		}
+
+		@Override
+		int computeHash()
+		{
+			int hash = Objects.hashCode(type);
+			hash = 31 * hash + minX;
+			hash = 31 * hash + maxX;
+			hash = 31 * hash + minY;
+			hash = 31 * hash + maxY;
+			hash = 31 * hash + exactX;
+			hash = 31 * hash + exactY;
+			hash = 31 * hash + plane;
+			return 31 * hash + tolerance;
+		}
+	}
+
+	// Inventory and equipment constraints. slot is the inventory's exactSlot or the equipment slot;
+	// requiredSlot only exists for the inventory.
+	public static final class Items extends ConstraintSpec
+	{
+		public final boolean worn;
+		public final int itemId;
+		final int[] itemIds;
+		public final int minQuantity;
+		public final int slot;
+		public final int requiredSlot;
+
+		Items(InventoryConstraint bean)
+		{
+			super(bean.getType());
+			worn = false;
+			itemId = unbox(bean.getItemId());
+			itemIds = toIdSet(bean.getItemIds());
+			minQuantity = unbox(bean.getMinQuantity());
+			slot = unbox(bean.getExactSlot());
+			requiredSlot = unbox(bean.getRequiredSlot());
+		}
+
+		Items(EquipmentConstraint bean)
+		{
+			super(bean.getType());
+			worn = true;
+			itemId = unbox(bean.getItemId());
+			itemIds = toIdSet(bean.getItemIds());
+			minQuantity = unbox(bean.getMinQuantity());
+			slot = unbox(bean.getSlot());
+			requiredSlot = UNSET;
+		}
+
+		@Override
+		public Constraint toBean()
+		{
+			if (worn)
+			{
+				EquipmentConstraint bean = new EquipmentConstraint(type);
+				bean.setItemId(box(itemId));
+				bean.setItemIds(fromIdSet(itemIds));
+				bean.setMinQuantity(box(minQuantity));
+				bean.setSlot(box(slot));
+				return bean;
+			}
+
+			InventoryConstraint bean = new InventoryConstraint(type);
+			bean.setItemId(box(itemId));
+			bean.setItemIds(fromIdSet(itemIds));
+			bean.setMinQuantity(box(minQuantity));
+			bean.setExactSlot(box(slot));
+			bean.setRequiredSlot(box(requiredSlot));
+			return bean;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Items) || o.hashCode() != hashCode())
+			{
+				return false;
+			}
+			Items other = (Items) o;
+			return Objects.equals(type, other.type) && worn == other.worn && itemId == other.itemId
+				&& Arrays.equals(itemIds, other.itemIds) && minQuantity == other.minQuantity
+				&& slot == other.slot && requiredSlot == other.requiredSlot;
+		}
+
+		@Override
+		int computeHash()
+		{
+			int hash = Objects.hash(type, worn, itemId, minQuantity, slot, requiredSlot);
+			return 31 * hash + Arrays.hashCode(itemIds);
+		}
+	}
+
+	public static final class Action extends ConstraintSpec
+	{
+		public final int emoteId;
+		final int[] emoteIds;
+		public final int npcId;
+		final int[] npcIds;
+		public final String interactionType;
+		// Sorted and duplicate-free like the id sets; compared case-insensitively
+		final String[] interactionTypes;
+
+		Action(ActionConstraint bean)
+		{
+			super(bean.getType());
+			emoteId = unbox(bean.getEmoteId());
+			emoteIds = toIdSet(bean.getEmoteIds());
+			npcId = unbox(bean.getNpcId());
+			npcIds = toIdSet(bean.getNpcIds());
+			interactionType = bean.getInteractionType();
+			interactionTypes = toStrings(bean.getInteractionTypes(), true);
+		}
+
+		@Override
+		public ActionConstraint toBean()
+		{
+			ActionConstraint bean = new ActionConstraint(type);
+			bean.setEmoteId(box(emoteId));
+			bean.setEmoteIds(fromIdSet(emoteIds));
+			bean.setNpcId(box(npcId));
+			bean.setNpcIds(fromIdSet(npcIds));
+			bean.setInteractionType(interactionType);
+			bean.setInteractionTypes(fromStrings(interactionTypes));
+			return bean;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Action) || o.hashCode() != hashCode())
+			{
+				return false;
+			}
+			Action other = (Action) o;
+			return Objects.equals(type, other.type) && emoteId == other.emoteId && Arrays.equals(emoteIds, other.emoteIds)
+				&& npcId == other.npcId && Arrays.equals(npcIds, other.npcIds)
+				&& Objects.equals(interactionType, other.interactionType) && Arrays.equals(interactionTypes, other.interactionTypes);
+		}
+
+		@Override
+		int computeHash()
+		{
+			int hash = Objects.hash(type, emoteId, npcId, interactionType);
+			hash = 31 * hash + Arrays.hashCode(emoteIds);
+			hash = 31 * hash + Arrays.hashCode(npcIds);
+			return 31 * hash + Arrays.hashCode(interactionTypes);
+		}
+	}
+
+	public static final class EventKey extends ConstraintSpec
+	{
+		public final String exactKey;
+		public final String prefix;
+		public final String suffix;
+		// Sorted and duplicate-free, tested with Arrays.binarySearch
+		final String[] allowedKeys;
+
+		EventKey(EventKeyConstraint bean)
+		{
+			super(bean.getType());
+			exactKey = bean.getExactKey();
+			prefix = bean.getPrefix();
+			suffix = bean.getSuffix();
+			allowedKeys = toStrings(bean.getAllowedKeys(), true);
+		}
+
+		@Override
+		public EventKeyConstraint toBean()
+		{
+			EventKeyConstraint bean = new EventKeyConstraint(type);
+			bean.setExactKey(exactKey);
+			bean.setPrefix(prefix);
+			bean.setSuffix(suffix);
+			bean.setAllowedKeys(fromStrings(allowedKeys));
+			return bean;
+		}
+
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof EventKey) || o.hashCode() != hashCode())
+			{
+				return false;
+			}
+			EventKey other = (EventKey) o;
+			return Objects.equals(type, other.type) && Objects.equals(exactKey, other.exactKey)
+				&& Objects.equals(prefix, other.prefix) && Objects.equals(suffix, other.suffix)
+				&& Arrays.equals(allowedKeys, other.allowedKeys);
+		}
+
+		@Override
+		int computeHash()
+		{
+			return 31 * Objects.hash(type, exactKey, prefix, suffix) + Arrays.hashCode(allowedKeys);
+		}
+	}
+}
@@ -7,6 +7,7 @@ import net.runelite.client.ui.ColorScheme;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class SubmitAnswerDialog extends JDialog
@@ -22,6 +23,7 @@ public class SubmitAnswerDialog extends JDialog
 	private Consumer<String> onSubmit;
 	private boolean cancelled = true;
 	private boolean keyValidated = false;
+	private CompletableFuture<ApiClient.ApiResponse> pendingValidation;
 
 	public SubmitAnswerDialog(JFrame parent, AnswerBuilder answerBuilder, ApiClient apiClient, Consumer<String> onSubmit)
 	{
@@ -158,8 +160,11 @@ public class SubmitAnswerDialog extends JDialog
 		validationStatusLabel.setText("Validating key...");
 		validationStatusLabel.setForeground(Color.YELLOW);
 
-		// Validate the key with the API
-		apiClient.validateEventKey(eventKey).thenAccept(response -> {
+		// Validate the key with the API, abandoning any earlier validation that is still running
+		cancelPendingValidation();
+		CompletableFuture<ApiClient.ApiResponse> validation = apiClient.validateEventKey(eventKey);
+		pendingValidation = validation;
+		validation.thenAccept(response -> {
 			SwingUtilities.invokeLater(() -> {
 				if (response.success)
 				{
@@ -210,6 +215,8 @@ public class SubmitAnswerDialog extends JDialog
 		}
 
 		cancelled = false;
+		// The key is about to be taken, so a cached "available" result is no longer true
+		apiClient.invalidateEventKey(eventKey);
 		onSubmit.accept(eventKey);
 		dispose();
 	}
@@ -220,6 +227,22 @@ public class SubmitAnswerDialog extends JDialog
 		dispose();
 	}
 
+	@Override
+	public void dispose()
+	{
+		cancelPendingValidation();
+		super.dispose();
+	}
+
+	private void cancelPendingValidation()
+	{
+		if (pendingValidation != null)
+		{
+			pendingValidation.cancel(false);
+			pendingValidation = null;
+		}
+	}
+
 	public boolean wasCancelled()
 	{
 		return cancelled;
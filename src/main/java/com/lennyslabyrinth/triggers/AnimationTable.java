@@ -0,0 +1,307 @@
+package com.lennyslabyrinth.triggers;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Immutable table of the animations that trigger a capture, loaded from animation_triggers.json.
+// Lookups index dense arrays by animation id, so checking an animation allocates nothing.
+@Slf4j
+public final class AnimationTable
+{
+	// Animation ids are well below this; entries above it are rejected
+	static final int MAX_ANIMATION_ID = 16384;
+
+	public enum Category
+	{
+		EMOTE("emote"),
+		DIG("dig"),
+		TOOL_ACTION("tool_action");
+
+		// Also the trigger type sent to the API
+		public final String key;
+
+		Category(String key)
+		{
+			this.key = key;
+		}
+
+		static Category fromKey(String key)
+		{
+			for (Category category : values())
+			{
+				if (category.key.equals(key))
+				{
+					return category;
+				}
+			}
+			return null;
+		}
+	}
+
+	static final AnimationTable EMPTY = new AnimationTable(0, new BitSet(), new BitSet(), new Category[0], new String[0]);
+
+	public final int version;
+	private final BitSet ids;
+	// Ids marked "estimated" in the file, not yet seen in game
+	private final BitSet estimated;
+	private final Category[] categories;
+	private final String[] names;
+	private final Trigger[] triggers;
+
+	private AnimationTable(int version, BitSet ids, BitSet estimated, Category[] categories, String[] names)
+	{
+		this.version = version;
+		this.ids = ids;
+		this.estimated = estimated;
+		this.categories = categories;
+		this.names = names;
+		this.triggers = new Trigger[categories.length];
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+		{
+			triggers[id] = new Trigger(categories[id].key, id, Trigger.NONE, Trigger.NONE, null);
+		}
+	}
+
+	public boolean isTrigger(int animationId)
+	{
+		return animationId >= 0 && ids.get(animationId);
+	}
+
+	public boolean isEstimated(int animationId)
+	{
+		return animationId >= 0 && estimated.get(animationId);
+	}
+
+	// Null for animations that are not triggers
+	public Category getCategory(int animationId)
+	{
+		return isTrigger(animationId) ? categories[animationId] : null;
+	}
+
+	public String getName(int animationId)
+	{
+		return isTrigger(animationId) ? names[animationId] : null;
+	}
+
+	int size()
+	{
+		return ids.cardinality();
+	}
+
+	int[] getIds()
+	{
+		return ids.stream().toArray();
+	}
+
+	// The same Trigger instance every time, so a match allocates nothing either
+	Trigger getTrigger(int animationId)
+	{
+		return isTrigger(animationId) ? triggers[animationId] : null;
+	}
+
+	// Adds the other table's animations. Where this table only has an estimate, an observed entry in the other
+	// wins: it takes over an estimated id, and estimates with the same name and category are dropped.
+	AnimationTable merge(AnimationTable other)
+	{
+		if (other.size() == 0)
+		{
+			return this;
+		}
+
+		int length = Math.max(categories.length, other.categories.length);
+		BitSet mergedIds = (BitSet) ids.clone();
+		BitSet mergedEstimated = (BitSet) estimated.clone();
+		Category[] mergedCategories = Arrays.copyOf(categories, length);
+		String[] mergedNames = Arrays.copyOf(names, length);
+		for (int id = other.ids.nextSetBit(0); id >= 0; id = other.ids.nextSetBit(id + 1))
+		{
+			if (!ids.get(id) || (estimated.get(id) && !other.estimated.get(id)))
+			{
+				mergedIds.set(id);
+				mergedEstimated.set(id, other.estimated.get(id));
+				mergedCategories[id] = other.categories[id];
+				mergedNames[id] = other.names[id];
+			}
+		}
+
+		for (int id = estimated.nextSetBit(0); id >= 0; id = estimated.nextSetBit(id + 1))
+		{
+			if (!other.ids.get(id) && other.hasObserved(names[id], categories[id]))
+			{
+				mergedIds.clear(id);
+				mergedEstimated.clear(id);
+				mergedCategories[id] = null;
+				mergedNames[id] = null;
+			}
+		}
+		return new AnimationTable(version, mergedIds, mergedEstimated, mergedCategories, mergedNames);
+	}
+
+	private boolean hasObserved(String name, Category category)
+	{
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+		{
+			if (!estimated.get(id) && categories[id] == category && names[id].equalsIgnoreCase(name))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Adds or replaces an observed animation
+	AnimationTable with(int animationId, String name, Category category)
+	{
+		int length = Math.max(categories.length, animationId + 1);
+		BitSet updatedIds = (BitSet) ids.clone();
+		BitSet updatedEstimated = (BitSet) estimated.clone();
+		Category[] updatedCategories = Arrays.copyOf(categories, length);
+		String[] updatedNames = Arrays.copyOf(names, length);
+		updatedIds.set(animationId);
+		updatedEstimated.clear(animationId);
+		updatedCategories[animationId] = category;
+		updatedNames[animationId] = name;
+		return new AnimationTable(version, updatedIds, updatedEstimated, updatedCategories, updatedNames);
+	}
+
+	// Writes the table in the same format parse() reads
+	void write(Writer out) throws IOException
+	{
+		JsonWriter writer = new JsonWriter(out);
+		writer.setIndent("\t");
+		writer.beginObject();
+		writer.name("version").value(version);
+		writer.name("animations").beginArray();
+		for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1))
+		{
+			writer.beginObject();
+			writer.name("id").value(id);
+			writer.name("name").value(names[id]);
+			writer.name("category").value(categories[id].key);
+			if (estimated.get(id))
+			{
+				writer.name("estimated").value(true);
+			}
+			writer.endObject();
+		}
+		writer.endArray();
+		writer.endObject();
+		writer.flush();
+	}
+
+	// Format: {"version": 1, "animations": [{"id": 863, "name": "Wave", "category": "emote"}, ...]}
+	// "estimated": true marks an id that has not been confirmed in game. Other unknown fields are ignored.
+	static AnimationTable parse(Reader source) throws IOException
+	{
+		int version = 0;
+		BitSet ids = new BitSet();
+		BitSet estimated = new BitSet();
+		Category[] categories = new Category[MAX_ANIMATION_ID];
+		String[] names = new String[MAX_ANIMATION_ID];
+		int maxId = -1;
+
+		try (JsonReader in = new JsonReader(source))
+		{
+			in.beginObject();
+			while (in.hasNext())
+			{
+				switch (in.nextName())
+				{
+					case "version":
+						version = in.nextInt();
+						break;
+					case "animations":
+						in.beginArray();
+						while (in.hasNext())
+						{
+							int id = readEntry(in, categories, names, estimated);
+							if (id >= 0)
+							{
+								ids.set(id);
+								maxId = Math.max(maxId, id);
+							}
+						}
+						in.endArray();
+						break;
+					default:
+						in.skipValue();
+				}
+			}
+			in.endObject();
+		}
+		catch (IllegalStateException | NumberFormatException e)
+		{
+			throw new JsonParseException("Invalid animation table", e);
+		}
+
+		// Trim the arrays to the highest id actually used
+		Category[] trimmedCategories = new Category[maxId + 1];
+		String[] trimmedNames = new String[maxId + 1];
+		System.arraycopy(categories, 0, trimmedCategories, 0, maxId + 1);
+		System.arraycopy(names, 0, trimmedNames, 0, maxId + 1);
+		return new AnimationTable(version, ids, estimated, trimmedCategories, trimmedNames);
+	}
+
+	// Returns the entry's id, or -1 if the entry is unusable
+	private static int readEntry(JsonReader in, Category[] categories, String[] names, BitSet estimated) throws IOException
+	{
+		int id = -1;
+		String name = null;
+		String category = null;
+		boolean isEstimated = false;
+
+		in.beginObject();
+		while (in.hasNext())
+		{
+			switch (in.nextName())
+			{
+				case "id":
+					id = in.nextInt();
+					break;
+				case "name":
+					name = readString(in);
+					break;
+				case "category":
+					category = readString(in);
+					break;
+				case "estimated":
+					isEstimated = in.nextBoolean();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		Category parsed = category != null ? Category.fromKey(category) : null;
+		if (id < 0 || id >= MAX_ANIMATION_ID || parsed == null)
+		{
+			log.warn("Ignoring animation table entry {} ({}) with category {}", id, name, category);
+			return -1;
+		}
+
+		categories[id] = parsed;
+		names[id] = name != null ? name : "Animation " + id;
+		estimated.set(id, isEstimated);
+		return id;
+	}
+
+	private static String readString(JsonReader in) throws IOException
+	{
+		if (in.peek() == JsonToken.NULL)
+		{
+			in.nextNull();
+			return null;
+		}
+		return in.nextString();
+	}
+}
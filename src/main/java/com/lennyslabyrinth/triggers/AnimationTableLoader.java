@@ -0,0 +1,255 @@
+package com.lennyslabyrinth.triggers;
+
+import com.google.gson.JsonParseException;
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.client.RuneLite;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Supplies the animation trigger table. The table bundled with the plugin can be replaced without a new
+// build by dropping an animation_triggers.json with the same or a higher version into the plugin's folder;
+// the file is checked every few seconds while the plugin runs, and deleting it goes back to the bundled table.
+// Animations learned by emote calibration are kept in a separate file and added on top of either table.
+@Slf4j
+@Singleton
+public class AnimationTableLoader
+{
+	private static final String RESOURCE = "animation_triggers.json";
+	private static final File PLUGIN_DIR = new File(RuneLite.RUNELITE_DIR, "lennys-labyrinth");
+	private static final File OVERRIDE_FILE = new File(PLUGIN_DIR, RESOURCE);
+	private static final File LEARNED_FILE = new File(PLUGIN_DIR, "learned_animations.json");
+	private static final long POLL_INTERVAL_SECONDS = 5;
+	private static final long SAVER_IDLE_SECONDS = 30;
+
+	private volatile AnimationTable table;
+	private AnimationTable bundled;
+	private AnimationTable base;
+	private AnimationTable learned;
+	private long overrideModified;
+	private long overrideLength;
+	private ScheduledExecutorService watcher;
+	private Runnable onReload;
+	// Saves learned animations off the client thread, one at a time so the newest table is written last.
+	// Its thread ends when idle, so it needs no shutdown and also works while the watcher is stopped.
+	private final ThreadPoolExecutor saver = createSaver();
+
+	public AnimationTable getTable()
+	{
+		AnimationTable current = table;
+		if (current == null)
+		{
+			synchronized (this)
+			{
+				if (table == null)
+				{
+					reload();
+				}
+				current = table;
+			}
+		}
+		return current;
+	}
+
+	// Starts watching the override file; onReload runs after the table changes
+	public synchronized void start(Runnable onReload)
+	{
+		if (watcher != null)
+		{
+			return;
+		}
+
+		this.onReload = onReload;
+		watcher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "lennys-labyrinth-animations");
+			thread.setDaemon(true);
+			return thread;
+		});
+		watcher.scheduleWithFixedDelay(() -> {
+			if (reloadIfChanged())
+			{
+				onReload.run();
+			}
+		}, POLL_INTERVAL_SECONDS, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+
+	public synchronized void stop()
+	{
+		if (watcher != null)
+		{
+			watcher.shutdown();
+			watcher = null;
+		}
+		onReload = null;
+	}
+
+	// Adds an animation seen during emote calibration. It replaces estimated ids for the same emote, or confirms
+	// one if the estimate was right. Returns false if it is already a confirmed trigger.
+	public boolean learn(int animationId, String name)
+	{
+		Runnable callback;
+		synchronized (this)
+		{
+			getTable();
+			if ((table.isTrigger(animationId) && !table.isEstimated(animationId))
+				|| animationId < 0 || animationId >= AnimationTable.MAX_ANIMATION_ID)
+			{
+				return false;
+			}
+
+			learned = learned.with(animationId, name, AnimationTable.Category.EMOTE);
+			table = base.merge(learned);
+			AnimationTable toSave = learned;
+			saver.execute(() -> saveLearned(toSave));
+			callback = onReload;
+		}
+
+		if (callback != null)
+		{
+			callback.run();
+		}
+		return true;
+	}
+
+	private static ThreadPoolExecutor createSaver()
+	{
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, SAVER_IDLE_SECONDS, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<>(), r -> {
+				Thread thread = new Thread(r, "lennys-labyrinth-animations-save");
+				thread.setDaemon(true);
+				return thread;
+			});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private synchronized boolean reloadIfChanged()
+	{
+		long modified = OVERRIDE_FILE.lastModified();
+		long length = OVERRIDE_FILE.length();
+		if (table != null && modified == overrideModified && length == overrideLength)
+		{
+			return false;
+		}
+
+		AnimationTable previous = base;
+		reload();
+		return base != previous;
+	}
+
+	// Holding the lock
+	private void reload()
+	{
+		if (bundled == null)
+		{
+			bundled = loadBundled();
+			learned = loadLearned();
+		}
+
+		overrideModified = OVERRIDE_FILE.lastModified();
+		overrideLength = OVERRIDE_FILE.length();
+		base = loadBase();
+		table = base.merge(learned);
+	}
+
+	private AnimationTable loadBase()
+	{
+		if (!OVERRIDE_FILE.isFile())
+		{
+			if (base != bundled)
+			{
+				log.info("Using bundled animation trigger table (version {}, {} animations)", bundled.version, bundled.size());
+			}
+			return bundled;
+		}
+
+		try (Reader reader = Files.newBufferedReader(OVERRIDE_FILE.toPath(), StandardCharsets.UTF_8))
+		{
+			AnimationTable override = AnimationTable.parse(reader);
+			if (override.version < bundled.version)
+			{
+				log.warn("Ignoring {}: version {} is older than the bundled version {}", OVERRIDE_FILE, override.version, bundled.version);
+				return bundled;
+			}
+
+			log.info("Loaded animation trigger table from {} (version {}, {} animations)", OVERRIDE_FILE, override.version, override.size());
+			return override;
+		}
+		catch (IOException | JsonParseException e)
+		{
+			// Keep whatever was working; a half-saved file will be picked up again once it changes
+			log.warn("Failed to load {}", OVERRIDE_FILE, e);
+			return base != null ? base : bundled;
+		}
+	}
+
+	private static AnimationTable loadBundled()
+	{
+		try (InputStream in = AnimationTableLoader.class.getResourceAsStream(RESOURCE))
+		{
+			if (in == null)
+			{
+				log.error("Bundled {} is missing, no animations will trigger captures", RESOURCE);
+				return AnimationTable.EMPTY;
+			}
+			return AnimationTable.parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+		catch (IOException | JsonParseException e)
+		{
+			log.error("Failed to load bundled {}", RESOURCE, e);
+			return AnimationTable.EMPTY;
+		}
+	}
+
+	private static AnimationTable loadLearned()
+	{
+		if (!LEARNED_FILE.isFile())
+		{
+			return AnimationTable.EMPTY;
+		}
+
+		try (Reader reader = Files.newBufferedReader(LEARNED_FILE.toPath(), StandardCharsets.UTF_8))
+		{
+			AnimationTable table = AnimationTable.parse(reader);
+			log.info("Loaded {} learned animations from {}", table.size(), LEARNED_FILE);
+			return table;
+		}
+		catch (IOException | JsonParseException e)
+		{
+			log.warn("Failed to load {}", LEARNED_FILE, e);
+			return AnimationTable.EMPTY;
+		}
+	}
+
+	// Written to a temporary file first so a crash never leaves a truncated table behind
+	private static void saveLearned(AnimationTable table)
+	{
+		File tmp = new File(PLUGIN_DIR, LEARNED_FILE.getName() + ".tmp");
+		try
+		{
+			Files.createDirectories(PLUGIN_DIR.toPath());
+			try (Writer writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8))
+			{
+				table.write(writer);
+			}
+			Files.move(tmp.toPath(), LEARNED_FILE.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (IOException e)
+		{
+			log.warn("Failed to save learned animations to {}", LEARNED_FILE, e);
+		}
+	}
+}
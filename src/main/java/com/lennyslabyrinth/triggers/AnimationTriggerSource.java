@@ -0,0 +1,37 @@
+package com.lennyslabyrinth.triggers;
+
+// Emotes, digging and other tool actions listed in the animation trigger table
+public class AnimationTriggerSource implements TriggerSource
+{
+	private final AnimationTableLoader animationTableLoader;
+
+	public AnimationTriggerSource(AnimationTableLoader animationTableLoader)
+	{
+		this.animationTableLoader = animationTableLoader;
+	}
+
+	@Override
+	public String getName()
+	{
+		return "animation";
+	}
+
+	@Override
+	public boolean isEnabledByDefault()
+	{
+		return true;
+	}
+
+	@Override
+	public int[] getAnimationIds()
+	{
+		return animationTableLoader.getTable().getIds();
+	}
+
+	@Override
+	public Trigger fromAnimation(int animationId)
+	{
+		// The registry's routing can trail a reload by a moment, so check against the current table
+		return animationTableLoader.getTable().getTrigger(animationId);
+	}
+}
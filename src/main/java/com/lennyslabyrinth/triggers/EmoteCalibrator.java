@@ -0,0 +1,92 @@
+package com.lennyslabyrinth.triggers;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Client;
+import net.runelite.api.MenuAction;
+import net.runelite.api.Player;
+import net.runelite.api.PlayerComposition;
+import net.runelite.api.events.MenuOptionClicked;
+import net.runelite.client.util.Text;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+// Learns real emote animation ids while calibration is switched on: a click in the emote tab is paired with
+// the local player's next animation. Ids the table does not know yet are saved and trigger from then on, and
+// take the place of any estimated id the table had for that emote; an estimate that turns out right is confirmed.
+// Emotes that look different by gender or outfit simply produce more than one id for the same name.
+// Client thread only.
+@Slf4j
+@Singleton
+public class EmoteCalibrator
+{
+	private static final int EMOTE_GROUP_ID = 216; // InterfaceID.EMOTES
+	// An emote normally starts on the next tick; anything later is probably unrelated
+	private static final int MAX_DELAY_TICKS = 3;
+	private static final int NO_TICK = -1;
+
+	@Inject
+	private Client client;
+
+	@Inject
+	private AnimationTableLoader animationTableLoader;
+
+	private String pendingEmote;
+	private int pendingTick = NO_TICK;
+
+	public void onMenuOptionClicked(MenuOptionClicked event)
+	{
+		MenuAction action = event.getMenuAction();
+		if ((action != MenuAction.CC_OP && action != MenuAction.CC_OP_LOW_PRIORITY) || event.getParam1() >>> 16 != EMOTE_GROUP_ID)
+		{
+			return;
+		}
+
+		String emote = Text.removeTags(event.getMenuTarget());
+		if (emote == null || emote.isEmpty())
+		{
+			return;
+		}
+
+		pendingEmote = emote;
+		pendingTick = client.getTickCount();
+	}
+
+	public void onLocalPlayerAnimation(Player player, int animationId)
+	{
+		if (pendingEmote == null || animationId == -1)
+		{
+			return;
+		}
+
+		String emote = pendingEmote;
+		int delay = client.getTickCount() - pendingTick;
+		pendingEmote = null;
+		pendingTick = NO_TICK;
+		if (delay > MAX_DELAY_TICKS)
+		{
+			return;
+		}
+
+		AnimationTable table = animationTableLoader.getTable();
+		if (table.isTrigger(animationId) && !table.isEstimated(animationId))
+		{
+			log.debug("Calibration: {} is animation {} ({}), already known", emote, animationId, table.getName(animationId));
+			return;
+		}
+
+		if (animationTableLoader.learn(animationId, emote))
+		{
+			PlayerComposition composition = player.getPlayerComposition();
+			log.info("Calibration: learned {} as animation {} ({})", emote, animationId,
+				composition != null && composition.getGender() == 1 ? "female" : "male");
+			client.addChatMessage(
+				ChatMessageType.GAMEMESSAGE,
+				"",
+				"[Lenny's Labyrinth] Learned emote " + emote + " (animation " + animationId + ")",
+				null
+			);
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.lennyslabyrinth.triggers;
+
+import net.runelite.api.MenuAction;
+import net.runelite.api.events.MenuOptionClicked;
+
+// Open, Search, Climb and the other game object menu options
+public class GameObjectOptionTriggerSource implements TriggerSource
+{
+	@Override
+	public String getName()
+	{
+		return "object_option";
+	}
+
+	@Override
+	public boolean isEnabledByDefault()
+	{
+		return false;
+	}
+
+	@Override
+	public MenuAction[] getMenuActions()
+	{
+		return new MenuAction[] {
+			MenuAction.GAME_OBJECT_FIRST_OPTION,
+			MenuAction.GAME_OBJECT_SECOND_OPTION,
+			MenuAction.GAME_OBJECT_THIRD_OPTION,
+			MenuAction.GAME_OBJECT_FOURTH_OPTION,
+			MenuAction.GAME_OBJECT_FIFTH_OPTION
+		};
+	}
+
+	@Override
+	public Trigger fromMenuOption(MenuOptionClicked event)
+	{
+		return new Trigger("object_interaction", Trigger.NONE, Trigger.NONE, event.getId(), event.getMenuOption());
+	}
+}
@@ -0,0 +1,36 @@
+package com.lennyslabyrinth.triggers;
+
+import net.runelite.api.MenuAction;
+import net.runelite.api.events.MenuOptionClicked;
+
+// Using an item on another item or on a game object. The target is the other item or the object.
+public class ItemUseTriggerSource implements TriggerSource
+{
+	@Override
+	public String getName()
+	{
+		return "item_use";
+	}
+
+	@Override
+	public boolean isEnabledByDefault()
+	{
+		return false;
+	}
+
+	@Override
+	public MenuAction[] getMenuActions()
+	{
+		return new MenuAction[] {
+			MenuAction.WIDGET_TARGET_ON_WIDGET,
+			MenuAction.WIDGET_TARGET_ON_GAME_OBJECT
+		};
+	}
+
+	@Override
+	public Trigger fromMenuOption(MenuOptionClicked event)
+	{
+		int targetId = event.getMenuAction() == MenuAction.WIDGET_TARGET_ON_GAME_OBJECT ? event.getId() : event.getItemId();
+		return new Trigger("item_use", Trigger.NONE, Trigger.NONE, targetId, event.getMenuOption());
+	}
+}
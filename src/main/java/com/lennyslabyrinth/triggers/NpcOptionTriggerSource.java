@@ -0,0 +1,38 @@
+package com.lennyslabyrinth.triggers;
+
+import net.runelite.api.MenuAction;
+import net.runelite.api.events.MenuOptionClicked;
+
+// Talk-to, Pickpocket and the other NPC menu options
+public class NpcOptionTriggerSource implements TriggerSource
+{
+	@Override
+	public String getName()
+	{
+		return "npc_option";
+	}
+
+	@Override
+	public boolean isEnabledByDefault()
+	{
+		return true;
+	}
+
+	@Override
+	public MenuAction[] getMenuActions()
+	{
+		return new MenuAction[] {
+			MenuAction.NPC_FIRST_OPTION,
+			MenuAction.NPC_SECOND_OPTION,
+			MenuAction.NPC_THIRD_OPTION,
+			MenuAction.NPC_FOURTH_OPTION,
+			MenuAction.NPC_FIFTH_OPTION
+		};
+	}
+
+	@Override
+	public Trigger fromMenuOption(MenuOptionClicked event)
+	{
+		return new Trigger("npc_interaction", Trigger.NONE, event.getId(), Trigger.NONE, event.getMenuOption());
+	}
+}
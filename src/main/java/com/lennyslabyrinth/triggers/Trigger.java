@@ -0,0 +1,41 @@
+package com.lennyslabyrinth.triggers;
+
+// One detected in-game action. Ids that do not apply to the action are NONE.
+public final class Trigger
+{
+	public static final int NONE = -1;
+
+	public final String type;
+	public final int emoteId;
+	public final int npcId;
+	// Game object, item or widget the action was aimed at
+	public final int targetId;
+	public final String interactionType;
+
+	public Trigger(String type, int emoteId, int npcId, int targetId, String interactionType)
+	{
+		this.type = type;
+		this.emoteId = emoteId;
+		this.npcId = npcId;
+		this.targetId = targetId;
+		this.interactionType = interactionType;
+	}
+
+	@Override
+	public String toString()
+	{
+		if (emoteId != NONE)
+		{
+			return type + " (Animation ID: " + emoteId + ")";
+		}
+		if (npcId != NONE)
+		{
+			return type + " (NPC ID: " + npcId + ", Action: " + interactionType + ")";
+		}
+		if (targetId != NONE)
+		{
+			return type + " (Target ID: " + targetId + ", Action: " + interactionType + ")";
+		}
+		return type;
+	}
+}
@@ -0,0 +1,213 @@
+package com.lennyslabyrinth.triggers;
+
+import lombok.extern.slf4j.Slf4j;
+import net.runelite.api.MenuAction;
+import net.runelite.api.events.MenuOptionClicked;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Routes animations and menu clicks to the trigger source that registered for them. Routing is an array
+// lookup by animation id or menu action, so the many events no source wants cost almost nothing.
+// Which sources are on can change per event key; until a key says otherwise each source's default applies.
+@Slf4j
+@Singleton
+public class TriggerRegistry
+{
+	private static final int MAX_ANIMATION_ID = AnimationTable.MAX_ANIMATION_ID;
+	private static final int NO_SOURCE = -1;
+
+	@Inject
+	private AnimationTableLoader animationTableLoader;
+
+	private final List<TriggerSource> sources = new ArrayList<>();
+	private final int[] menuActionSlots = new int[MenuAction.values().length];
+	// Rebuilt and swapped when the animation table is reloaded
+	private volatile int[] animationSlots = emptySlots();
+
+	// Indexed like sources and replaced as a whole, so the event handlers never see a half-updated set
+	private volatile boolean[] enabled = new boolean[0];
+
+	public TriggerRegistry()
+	{
+		Arrays.fill(menuActionSlots, NO_SOURCE);
+	}
+
+	@Inject
+	public void initialize()
+	{
+		register(new AnimationTriggerSource(animationTableLoader));
+		register(new NpcOptionTriggerSource());
+		register(new GameObjectOptionTriggerSource());
+		register(new ItemUseTriggerSource());
+		register(new WidgetTriggerSource());
+	}
+
+	public void startUp()
+	{
+		animationTableLoader.start(this::refreshAnimations);
+	}
+
+	public void shutDown()
+	{
+		animationTableLoader.stop();
+	}
+
+	// Extra sources must be registered during start-up, before events arrive.
+	// Each animation id and menu action can belong to only one source.
+	public synchronized void register(TriggerSource source)
+	{
+		int slot = sources.size();
+		for (TriggerSource existing : sources)
+		{
+			if (existing.getName().equals(source.getName()))
+			{
+				throw new IllegalArgumentException("Trigger source already registered: " + source.getName());
+			}
+		}
+
+		int[] animationIds = source.getAnimationIds();
+		MenuAction[] menuActions = source.getMenuActions();
+		int[] slots = animationSlots;
+		for (int animationId : animationIds)
+		{
+			if (animationId < 0 || animationId >= MAX_ANIMATION_ID)
+			{
+				throw new IllegalArgumentException("Animation ID out of range: " + animationId);
+			}
+			if (slots[animationId] != NO_SOURCE)
+			{
+				throw new IllegalArgumentException("Animation ID " + animationId + " already handled by " + sources.get(slots[animationId]).getName());
+			}
+		}
+		for (MenuAction menuAction : menuActions)
+		{
+			if (menuActionSlots[menuAction.ordinal()] != NO_SOURCE)
+			{
+				throw new IllegalArgumentException("Menu action " + menuAction + " already handled by " + sources.get(menuActionSlots[menuAction.ordinal()]).getName());
+			}
+		}
+
+		for (int animationId : animationIds)
+		{
+			slots[animationId] = slot;
+		}
+		for (MenuAction menuAction : menuActions)
+		{
+			menuActionSlots[menuAction.ordinal()] = slot;
+		}
+		sources.add(source);
+		enabled = defaults();
+	}
+
+	// Re-reads every source's animation ids, e.g. after the animation table was reloaded.
+	// An id claimed by two sources stays with the one registered first.
+	public synchronized void refreshAnimations()
+	{
+		int[] slots = emptySlots();
+		for (int slot = 0; slot < sources.size(); slot++)
+		{
+			for (int animationId : sources.get(slot).getAnimationIds())
+			{
+				if (animationId < 0 || animationId >= MAX_ANIMATION_ID)
+				{
+					continue;
+				}
+				if (slots[animationId] != NO_SOURCE)
+				{
+					log.warn("Animation ID {} is claimed by both {} and {}", animationId, sources.get(slots[animationId]).getName(), sources.get(slot).getName());
+					continue;
+				}
+				slots[animationId] = slot;
+			}
+		}
+		animationSlots = slots;
+	}
+
+	public Trigger fromAnimation(int animationId)
+	{
+		if (animationId < 0 || animationId >= MAX_ANIMATION_ID)
+		{
+			return null;
+		}
+
+		int slot = animationSlots[animationId];
+		if (slot == NO_SOURCE || !enabled[slot])
+		{
+			return null;
+		}
+		return sources.get(slot).fromAnimation(animationId);
+	}
+
+	public Trigger fromMenuOption(MenuOptionClicked event)
+	{
+		MenuAction menuAction = event.getMenuAction();
+		if (menuAction == null)
+		{
+			return null;
+		}
+
+		int slot = menuActionSlots[menuAction.ordinal()];
+		if (slot == NO_SOURCE || !enabled[slot])
+		{
+			return null;
+		}
+		return sources.get(slot).fromMenuOption(event);
+	}
+
+	// Turns on exactly the named sources, or restores the defaults when names is null
+	public synchronized void setEnabledSources(Collection<String> names)
+	{
+		if (names == null)
+		{
+			enabled = defaults();
+			return;
+		}
+
+		boolean[] updated = new boolean[sources.size()];
+		for (String name : names)
+		{
+			int slot = indexOf(name);
+			if (slot == NO_SOURCE)
+			{
+				log.debug("Ignoring unknown trigger source '{}'", name);
+				continue;
+			}
+			updated[slot] = true;
+		}
+		enabled = updated;
+	}
+
+	private static int[] emptySlots()
+	{
+		int[] slots = new int[MAX_ANIMATION_ID];
+		Arrays.fill(slots, NO_SOURCE);
+		return slots;
+	}
+
+	private boolean[] defaults()
+	{
+		boolean[] defaults = new boolean[sources.size()];
+		for (int i = 0; i < defaults.length; i++)
+		{
+			defaults[i] = sources.get(i).isEnabledByDefault();
+		}
+		return defaults;
+	}
+
+	private int indexOf(String name)
+	{
+		for (int i = 0; i < sources.size(); i++)
+		{
+			if (sources.get(i).getName().equals(name))
+			{
+				return i;
+			}
+		}
+		return NO_SOURCE;
+	}
+}
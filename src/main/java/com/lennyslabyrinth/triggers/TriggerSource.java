@@ -0,0 +1,36 @@
+package com.lennyslabyrinth.triggers;
+
+import net.runelite.api.MenuAction;
+import net.runelite.api.events.MenuOptionClicked;
+
+// One kind of in-game action that can trigger a capture. The pre-filters are read once when the source is
+// registered; after that TriggerRegistry only calls a source for animations and menu actions it declared.
+public interface TriggerSource
+{
+	// Stable name used to switch the source on or off per event key, e.g. "npc_option"
+	String getName();
+
+	// Whether the source is on for event keys that do not say otherwise
+	boolean isEnabledByDefault();
+
+	default int[] getAnimationIds()
+	{
+		return new int[0];
+	}
+
+	default MenuAction[] getMenuActions()
+	{
+		return new MenuAction[0];
+	}
+
+	// Return null to ignore the event after all
+	default Trigger fromAnimation(int animationId)
+	{
+		return null;
+	}
+
+	default Trigger fromMenuOption(MenuOptionClicked event)
+	{
+		return null;
+	}
+}
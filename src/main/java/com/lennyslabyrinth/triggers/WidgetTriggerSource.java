@@ -0,0 +1,35 @@
+package com.lennyslabyrinth.triggers;
+
+import net.runelite.api.MenuAction;
+import net.runelite.api.events.MenuOptionClicked;
+
+// Clicks on interface components such as inventory items, prayers or buttons. The target is the packed widget id.
+public class WidgetTriggerSource implements TriggerSource
+{
+	@Override
+	public String getName()
+	{
+		return "widget";
+	}
+
+	@Override
+	public boolean isEnabledByDefault()
+	{
+		return false;
+	}
+
+	@Override
+	public MenuAction[] getMenuActions()
+	{
+		return new MenuAction[] {
+			MenuAction.CC_OP,
+			MenuAction.CC_OP_LOW_PRIORITY
+		};
+	}
+
+	@Override
+	public Trigger fromMenuOption(MenuOptionClicked event)
+	{
+		return new Trigger("widget", Trigger.NONE, Trigger.NONE, event.getParam1(), event.getMenuOption());
+	}
+}
@@ -0,0 +1,209 @@
+package com.lennyslabyrinth.triggers;
+
+import com.lennyslabyrinth.constraints.LocationConstraint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Immutable grid over a set of zones. Each zone is a rectangle built from a LocationConstraint:
+// exact is a single tile, bounds is the given area and tolerance is the square of tiles within that
+// many tiles of the target. The grid has a few levels, each with cells 16 times as wide as the one below,
+// and a zone is filed in the finest level where it covers at most MAX_CELLS_PER_ZONE cells. A lookup
+// finds its one cell in each level by binary search over the occupied cells' keys, so its cost depends on
+// the number of levels and the zones in those cells, not on how many zones there are or how large.
+final class ZoneIndex
+{
+	static final ZoneIndex EMPTY = new ZoneIndex(new ArrayList<>());
+
+	// The finest cells are 64 x 64 tiles, the size of a map region
+	private static final int CELL_SHIFT = 6;
+	private static final int LEVEL_SHIFT = 4;
+	// Coordinates are non-negative ints, so at this shift any zone spans at most 2 x 2 cells
+	private static final int MAX_SHIFT = 30;
+	// Zones covering more cells than this move up a level instead of being copied into each cell
+	private static final int MAX_CELLS_PER_ZONE = 256;
+	private static final int ANY_PLANE = -1;
+
+	final int size;
+	private final int[] minX;
+	private final int[] maxX;
+	private final int[] minY;
+	private final int[] maxY;
+	private final int[] plane;
+	// Only the levels that hold zones, finest first
+	private final Level[] levels;
+
+	private static final class Level
+	{
+		final int shift;
+		// Sorted keys of the cells that hold zones, and each cell's zone ids at the same index
+		final long[] cellKeys;
+		final int[][] cellZones;
+
+		Level(int shift, TreeMap<Long, List<Integer>> cells)
+		{
+			this.shift = shift;
+			cellKeys = new long[cells.size()];
+			cellZones = new int[cells.size()][];
+			int cell = 0;
+			for (Map.Entry<Long, List<Integer>> entry : cells.entrySet())
+			{
+				cellKeys[cell] = entry.getKey();
+				cellZones[cell] = toArray(entry.getValue());
+				cell++;
+			}
+		}
+	}
+
+	// Zone ids are positions in the list. Zones with missing fields never match but keep their id.
+	ZoneIndex(List<LocationConstraint> zones)
+	{
+		size = zones.size();
+		minX = new int[size];
+		maxX = new int[size];
+		minY = new int[size];
+		maxY = new int[size];
+		plane = new int[size];
+
+		// One map per level, sorted by key so the level's arrays come out ready for binary search
+		int levelCount = (MAX_SHIFT - CELL_SHIFT) / LEVEL_SHIFT + 1;
+		List<TreeMap<Long, List<Integer>>> building = new ArrayList<>(levelCount);
+		for (int level = 0; level < levelCount; level++)
+		{
+			building.add(new TreeMap<>());
+		}
+
+		for (int id = 0; id < size; id++)
+		{
+			LocationConstraint zone = zones.get(id);
+			if (!setBounds(id, zone))
+			{
+				continue;
+			}
+
+			int level = 0;
+			int shift = CELL_SHIFT;
+			while (cellCount(id, shift) > MAX_CELLS_PER_ZONE)
+			{
+				level++;
+				shift += LEVEL_SHIFT;
+			}
+
+			TreeMap<Long, List<Integer>> cells = building.get(level);
+			for (int cellX = minX[id] >> shift; cellX <= maxX[id] >> shift; cellX++)
+			{
+				for (int cellY = minY[id] >> shift; cellY <= maxY[id] >> shift; cellY++)
+				{
+					cells.computeIfAbsent(cellKey(cellX, cellY), k -> new ArrayList<>()).add(id);
+				}
+			}
+		}
+
+		List<Level> occupied = new ArrayList<>();
+		for (int level = 0; level < levelCount; level++)
+		{
+			if (!building.get(level).isEmpty())
+			{
+				occupied.add(new Level(CELL_SHIFT + level * LEVEL_SHIFT, building.get(level)));
+			}
+		}
+		levels = occupied.toArray(new Level[0]);
+	}
+
+	// Sets out to exactly the zones containing the tile
+	void query(int x, int y, int tilePlane, BitSet out)
+	{
+		out.clear();
+		for (Level level : levels)
+		{
+			int cell = Arrays.binarySearch(level.cellKeys, cellKey(x >> level.shift, y >> level.shift));
+			if (cell < 0)
+			{
+				continue;
+			}
+
+			for (int id : level.cellZones[cell])
+			{
+				if (contains(id, x, y, tilePlane))
+				{
+					out.set(id);
+				}
+			}
+		}
+	}
+
+	private long cellCount(int id, int shift)
+	{
+		return (long) ((maxX[id] >> shift) - (minX[id] >> shift) + 1) * ((maxY[id] >> shift) - (minY[id] >> shift) + 1);
+	}
+
+	private boolean contains(int id, int x, int y, int tilePlane)
+	{
+		return x >= minX[id] && x <= maxX[id] && y >= minY[id] && y <= maxY[id]
+			&& (plane[id] == ANY_PLANE || plane[id] == tilePlane);
+	}
+
+	private boolean setBounds(int id, LocationConstraint zone)
+	{
+		plane[id] = zone.getPlane() != null ? zone.getPlane() : ANY_PLANE;
+		String type = zone.getType() != null ? zone.getType() : "";
+		switch (type)
+		{
+			case "exact":
+				if (zone.getExactX() == null || zone.getExactY() == null)
+				{
+					return false;
+				}
+				return setRect(id, zone.getExactX(), zone.getExactX(), zone.getExactY(), zone.getExactY());
+			case "bounds":
+				if (zone.getMinX() == null || zone.getMaxX() == null || zone.getMinY() == null || zone.getMaxY() == null)
+				{
+					return false;
+				}
+				return setRect(id, zone.getMinX(), zone.getMaxX(), zone.getMinY(), zone.getMaxY());
+			case "tolerance":
+				if (zone.getExactX() == null || zone.getExactY() == null || zone.getTolerance() == null || zone.getTolerance() < 0)
+				{
+					return false;
+				}
+				int tolerance = zone.getTolerance();
+				return setRect(id, zone.getExactX() - tolerance, zone.getExactX() + tolerance,
+					zone.getExactY() - tolerance, zone.getExactY() + tolerance);
+			default:
+				return false;
+		}
+	}
+
+	private boolean setRect(int id, int x1, int x2, int y1, int y2)
+	{
+		if (x1 > x2 || y1 > y2 || x1 < 0 || y1 < 0)
+		{
+			return false;
+		}
+		minX[id] = x1;
+		maxX[id] = x2;
+		minY[id] = y1;
+		maxY[id] = y2;
+		return true;
+	}
+
+	// Both halves are kept whole, so distant cells can never share a key
+	private static long cellKey(int cellX, int cellY)
+	{
+		return ((long) cellX << 32) | (cellY & 0xffffffffL);
+	}
+
+	private static int[] toArray(List<Integer> ids)
+	{
+		int[] array = new int[ids.size()];
+		for (int i = 0; i < array.length; i++)
+		{
+			array[i] = ids.get(i);
+		}
+		return array;
+	}
+}
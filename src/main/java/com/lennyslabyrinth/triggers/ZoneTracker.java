@@ -0,0 +1,69 @@
+package com.lennyslabyrinth.triggers;
+
+import com.lennyslabyrinth.constraints.LocationConstraint;
+
+import javax.inject.Singleton;
+import java.util.BitSet;
+import java.util.List;
+
+// Watches the player's tile once per game tick and reports when they step into or out of one of the
+// current event's zones. Standing still, or moving around inside a zone, reports nothing.
+@Singleton
+public class ZoneTracker
+{
+	public interface Listener
+	{
+		void onZoneTransition(int zoneId, boolean entered);
+	}
+
+	private volatile ZoneIndex index = ZoneIndex.EMPTY;
+
+	// Client thread only
+	private ZoneIndex trackedIndex;
+	private BitSet inside = new BitSet();
+	private BitSet next = new BitSet();
+
+	// Zone ids are positions in the list; null or empty removes all zones
+	public void setZones(List<LocationConstraint> zones)
+	{
+		index = zones == null || zones.isEmpty() ? ZoneIndex.EMPTY : new ZoneIndex(zones);
+	}
+
+	// Must be called on the client thread
+	public void update(int x, int y, int plane, Listener listener)
+	{
+		ZoneIndex current = index;
+		if (current != trackedIndex)
+		{
+			// New zones: wherever the player stands now is the starting point, not an entry
+			trackedIndex = current;
+			current.query(x, y, plane, inside);
+			return;
+		}
+
+		if (current.size == 0)
+		{
+			return;
+		}
+
+		current.query(x, y, plane, next);
+		for (int id = next.nextSetBit(0); id >= 0; id = next.nextSetBit(id + 1))
+		{
+			if (!inside.get(id))
+			{
+				listener.onZoneTransition(id, true);
+			}
+		}
+		for (int id = inside.nextSetBit(0); id >= 0; id = inside.nextSetBit(id + 1))
+		{
+			if (!next.get(id))
+			{
+				listener.onZoneTransition(id, false);
+			}
+		}
+
+		BitSet previous = inside;
+		inside = next;
+		next = previous;
+	}
+}
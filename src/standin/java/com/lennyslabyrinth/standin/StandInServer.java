@@ -0,0 +1,381 @@
+package com.lennyslabyrinth.standin;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.lennyslabyrinth.ApiClient;
+import com.lennyslabyrinth.GameStateCodec;
+import com.lennyslabyrinth.WireAdapters;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+// Local stand-in for the Lenny's Labyrinth cloud function, for offline development and load testing.
+// Implements the same endpoints with the plugin's own DTOs, plus injectable latency and failures.
+//
+// Run with: ./gradlew runStandin -PstandinArgs="--port 8080 --key test=863 --latency 50 --failure-rate 0.1"
+// and add --seed 42 to inject the same failures and jitter on every run.
+// then set "API URL override" in the plugin config to http://localhost:8080
+public class StandInServer
+{
+	private static final int MAX_BODY_BYTES = 1 << 20;
+	private static final int MAX_REMEMBERED_REQUESTS = 10_000;
+
+	private final Options options;
+	// Shared by the handler threads; Random is thread-safe
+	private final Random random;
+	private final Gson gson = WireAdapters.GSON;
+	private final AtomicLong requestCount = new AtomicLong();
+	private final AtomicLong judgedCount = new AtomicLong();
+	// Answers by request id, so a resent submission gets its first answer instead of being judged again
+	private final Map<String, ApiClient.ApiResponse> answers = Collections.synchronizedMap(
+		new LinkedHashMap<String, ApiClient.ApiResponse>()
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ApiClient.ApiResponse> eldest)
+			{
+				return size() > MAX_REMEMBERED_REQUESTS;
+			}
+		});
+	private HttpServer server;
+	private ExecutorService executor;
+
+	public static class Options
+	{
+		public int port = 8080;
+		public long latencyMillis = 0;
+		public long jitterMillis = 0;
+		public double failureRate = 0;
+		// Seeds the failures and jitter so a run can be repeated; null for a different sequence each run
+		public Long seed;
+		// Volatile so a test can make a running server stop accepting the binary format
+		public volatile boolean binary = true;
+		public boolean batch = true;
+		// Event key -> required emote id, or null if any submission for the key is correct
+		public Map<String, Integer> keys = new HashMap<>();
+
+		public static Options parse(String[] args)
+		{
+			Options options = new Options();
+			for (int i = 0; i < args.length; i++)
+			{
+				switch (args[i])
+				{
+					case "--port":
+						options.port = Integer.parseInt(args[++i]);
+						break;
+					case "--latency":
+						options.latencyMillis = Long.parseLong(args[++i]);
+						break;
+					case "--jitter":
+						options.jitterMillis = Long.parseLong(args[++i]);
+						break;
+					case "--failure-rate":
+						options.failureRate = Double.parseDouble(args[++i]);
+						break;
+					case "--seed":
+						options.seed = Long.parseLong(args[++i]);
+						break;
+					case "--no-binary":
+						options.binary = false;
+						break;
+					case "--no-batch":
+						options.batch = false;
+						break;
+					case "--key":
+						String[] parts = args[++i].split("=", 2);
+						options.keys.put(parts[0], parts.length > 1 ? Integer.valueOf(parts[1]) : null);
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option " + args[i]);
+				}
+			}
+
+			if (options.keys.isEmpty())
+			{
+				options.keys.put("test", null);
+			}
+			return options;
+		}
+	}
+
+	public StandInServer(Options options)
+	{
+		this(options, options.seed != null ? new Random(options.seed) : new Random());
+	}
+
+	public StandInServer(Options options, Random random)
+	{
+		this.options = options;
+		this.random = random;
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		StandInServer standIn = new StandInServer(Options.parse(args));
+		standIn.start();
+		System.out.println("Lenny's Labyrinth stand-in listening on " + standIn.getBaseUrl()
+			+ " with keys " + standIn.options.keys.keySet());
+	}
+
+	public void start() throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress("localhost", options.port), 0);
+		executor = Executors.newFixedThreadPool(32);
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	public void stop()
+	{
+		if (server != null)
+		{
+			server.stop(0);
+			executor.shutdownNow();
+			server = null;
+		}
+	}
+
+	public String getBaseUrl()
+	{
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	public long getRequestCount()
+	{
+		return requestCount.get();
+	}
+
+	// Distinct submissions judged, not counting resends recognised by their request id
+	public long getJudgedCount()
+	{
+		return judgedCount.get();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException
+	{
+		try
+		{
+			route(exchange);
+		}
+		catch (JsonParseException | IllegalArgumentException e)
+		{
+			sendJson(exchange, 400, new ApiClient.ApiResponse(false, "Bad request: " + e.getMessage()));
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	private void route(HttpExchange exchange) throws IOException
+	{
+		requestCount.incrementAndGet();
+		injectLatency();
+
+		String method = exchange.getRequestMethod();
+		String path = exchange.getRequestURI().getRawPath();
+
+		if (options.binary)
+		{
+			exchange.getResponseHeaders().set("Accept-Post", "application/json, " + GameStateCodec.MEDIA_TYPE);
+		}
+
+		if ("HEAD".equals(method))
+		{
+			exchange.sendResponseHeaders(200, -1);
+			return;
+		}
+
+		if (options.failureRate > 0 && random.nextDouble() < options.failureRate)
+		{
+			sendJson(exchange, 503, new ApiClient.ApiResponse(false, "Injected failure"));
+			return;
+		}
+
+		if ("POST".equals(method) && "/submit-guess".equals(path))
+		{
+			handleSubmitGuess(exchange);
+		}
+		else if ("POST".equals(method) && "/submit-guesses".equals(path) && options.batch)
+		{
+			handleSubmitGuesses(exchange);
+		}
+		else if ("GET".equals(method) && path.startsWith("/validate-key/"))
+		{
+			handleValidateKey(exchange, URLDecoder.decode(path.substring("/validate-key/".length()), StandardCharsets.UTF_8));
+		}
+		else
+		{
+			sendJson(exchange, 404, new ApiClient.ApiResponse(false, "Not found"));
+		}
+	}
+
+	private void handleSubmitGuess(HttpExchange exchange) throws IOException
+	{
+		String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+		byte[] body = readBody(exchange);
+
+		ApiClient.GameStateSubmission submission;
+		if (contentType != null && contentType.startsWith(GameStateCodec.MEDIA_TYPE))
+		{
+			if (!options.binary)
+			{
+				sendJson(exchange, 415, new ApiClient.ApiResponse(false, "Unsupported media type"));
+				return;
+			}
+			submission = GameStateCodec.decode(body);
+		}
+		else
+		{
+			submission = gson.fromJson(new String(body, StandardCharsets.UTF_8), ApiClient.GameStateSubmission.class);
+		}
+
+		// The binary format has no request id, so it comes in a header
+		String requestId = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+		if (requestId == null && submission != null)
+		{
+			requestId = submission.request_id;
+		}
+		sendJson(exchange, 200, judgeOnce(submission, requestId));
+	}
+
+	private void handleSubmitGuesses(HttpExchange exchange) throws IOException
+	{
+		ApiClient.BatchSubmission batch = gson.fromJson(new String(readBody(exchange), StandardCharsets.UTF_8), ApiClient.BatchSubmission.class);
+
+		ApiClient.BatchResponse result = new ApiClient.BatchResponse();
+		result.results = new ArrayList<>();
+		for (ApiClient.GameStateSubmission submission : batch.submissions)
+		{
+			result.results.add(judgeOnce(submission, submission != null ? submission.request_id : null));
+		}
+		sendJson(exchange, 200, result);
+	}
+
+	private void handleValidateKey(HttpExchange exchange, String eventKey) throws IOException
+	{
+		if (options.keys.containsKey(eventKey))
+		{
+			sendJson(exchange, 200, new ApiClient.ApiResponse(true, "Event key is valid"));
+		}
+		else
+		{
+			sendJson(exchange, 404, new ApiClient.ApiResponse(false, "Event key not found"));
+		}
+	}
+
+	private ApiClient.ApiResponse judgeOnce(ApiClient.GameStateSubmission submission, String requestId)
+	{
+		if (requestId == null)
+		{
+			return judge(submission);
+		}
+		return answers.computeIfAbsent(requestId, id -> judge(submission));
+	}
+
+	private ApiClient.ApiResponse judge(ApiClient.GameStateSubmission submission)
+	{
+		judgedCount.incrementAndGet();
+		if (submission == null || !options.keys.containsKey(submission.event_key))
+		{
+			return new ApiClient.ApiResponse(false, "Unknown event key");
+		}
+
+		Integer requiredEmote = options.keys.get(submission.event_key);
+		if (requiredEmote == null || requiredEmote.equals(submission.emote_id) || hasTriggerEmote(submission, requiredEmote))
+		{
+			return new ApiClient.ApiResponse(true, "You solved the stand-in puzzle!");
+		}
+		return new ApiClient.ApiResponse(false, "Not quite - try again");
+	}
+
+	// Submissions carry every trigger from the tick when there was more than one
+	private static boolean hasTriggerEmote(ApiClient.GameStateSubmission submission, int emoteId)
+	{
+		if (submission.triggers == null)
+		{
+			return false;
+		}
+
+		for (ApiClient.TriggerData trigger : submission.triggers)
+		{
+			if (trigger.emote_id != null && trigger.emote_id == emoteId)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void injectLatency()
+	{
+		long delay = options.latencyMillis;
+		if (options.jitterMillis > 0)
+		{
+			delay += (long) (random.nextDouble() * (options.jitterMillis + 1));
+		}
+
+		if (delay > 0)
+		{
+			try
+			{
+				Thread.sleep(delay);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static byte[] readBody(HttpExchange exchange) throws IOException
+	{
+		InputStream in = exchange.getRequestBody();
+		if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+		{
+			in = new GZIPInputStream(in);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = in.read(buffer)) != -1)
+		{
+			out.write(buffer, 0, read);
+			if (out.size() > MAX_BODY_BYTES)
+			{
+				throw new IllegalArgumentException("Request body too large");
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private void sendJson(HttpExchange exchange, int status, Object body) throws IOException
+	{
+		byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody())
+		{
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.lennyslabyrinth;
+
+import net.runelite.api.Item;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CaptureSnapshotPoolTest
+{
+	// More than the pool keeps, so some snapshots are dropped on release
+	private static final int CAPTURES = 12;
+
+	@Test
+	public void reusesReleasedSnapshots()
+	{
+		CaptureSnapshotPool pool = new CaptureSnapshotPool();
+		List<CaptureSnapshot> first = new ArrayList<>();
+		for (int i = 0; i < CAPTURES; i++)
+		{
+			CaptureSnapshot snapshot = pool.acquire();
+			snapshot.eventKey = "key-" + i;
+			snapshot.addTrigger("emote", 863, CaptureSnapshot.NONE, CaptureSnapshot.NONE, null);
+			first.add(snapshot);
+		}
+		assertEquals("a dry pool hands out distinct snapshots", CAPTURES, identitySet(first).size());
+		first.forEach(pool::release);
+
+		Set<CaptureSnapshot> released = identitySet(first);
+		int reused = 0;
+		for (int i = 0; i < CAPTURES; i++)
+		{
+			CaptureSnapshot snapshot = pool.acquire();
+			if (released.contains(snapshot))
+			{
+				reused++;
+				// Handed back empty
+				assertNull(snapshot.eventKey);
+				assertEquals(0, snapshot.triggerCount);
+				assertSame(ContainerSnapshotCache.Snapshot.EMPTY, snapshot.inventory);
+			}
+		}
+		assertEquals(8, reused);
+	}
+
+	@Test
+	public void releasedSnapshotIsNextOut()
+	{
+		CaptureSnapshotPool pool = new CaptureSnapshotPool();
+		CaptureSnapshot snapshot = pool.acquire();
+		pool.release(snapshot);
+
+		assertSame(snapshot, pool.acquire());
+		// The pool is empty again
+		assertNotSame(snapshot, pool.acquire());
+	}
+
+	@Test
+	public void captureAllocatesNearlyNothing()
+	{
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		CaptureSnapshotPool pool = new CaptureSnapshotPool();
+		// Built by the container cache when the containers change, not per capture
+		ContainerSnapshotCache.Snapshot inventory = ContainerSnapshotCache.Snapshot.EMPTY.update(new Item[]{
+			new Item(952, 1), new Item(-1, 0), new Item(995, 12_000)});
+		ContainerSnapshotCache.Snapshot equipment = ContainerSnapshotCache.Snapshot.EMPTY.update(new Item[]{new Item(1163, 1)});
+
+		// Warm up so the JIT has compiled the path before it is measured
+		long sink = 0;
+		for (int i = 0; i < 20_000; i++)
+		{
+			sink += capture(pool, inventory, equipment, i);
+		}
+
+		int captures = 100_000;
+		long threadId = Thread.currentThread().getId();
+		long before = threads.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < captures; i++)
+		{
+			sink += capture(pool, inventory, equipment, i);
+		}
+		long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+		assertTrue(sink != 0);
+		// Under a byte per capture on average; a single object per capture would be 16 bytes or more
+		assertTrue(allocated + " bytes for " + captures + " captures", allocated < captures);
+	}
+
+	// What the client thread does for one emote: fill a pooled snapshot and fingerprint it for the duplicate check
+	private static long capture(CaptureSnapshotPool pool, ContainerSnapshotCache.Snapshot inventory,
+		ContainerSnapshotCache.Snapshot equipment, int i)
+	{
+		CaptureSnapshot snapshot = pool.acquire();
+		snapshot.worldX = 3222 + (i & 7);
+		snapshot.worldY = 3218;
+		snapshot.plane = 0;
+		snapshot.sceneX = 50;
+		snapshot.sceneY = 52;
+		snapshot.eventKey = "lenny-1";
+		snapshot.rsn = "Zezima";
+		snapshot.inventory = inventory;
+		snapshot.equipment = equipment;
+		snapshot.addTrigger("emote", 863, CaptureSnapshot.NONE, CaptureSnapshot.NONE, null);
+		snapshot.addTrigger("npc_option", CaptureSnapshot.NONE, 3078, CaptureSnapshot.NONE, "Talk-to");
+		long fingerprint = SubmissionCoalescer.fingerprint(snapshot);
+		pool.release(snapshot);
+		return fingerprint;
+	}
+
+	private static Set<CaptureSnapshot> identitySet(List<CaptureSnapshot> snapshots)
+	{
+		Set<CaptureSnapshot> set = Collections.newSetFromMap(new IdentityHashMap<>());
+		set.addAll(snapshots);
+		return set;
+	}
+}
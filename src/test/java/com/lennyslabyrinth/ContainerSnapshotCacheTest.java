@@ -0,0 +1,70 @@
+package com.lennyslabyrinth;
+
+import net.runelite.api.Item;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ContainerSnapshotCacheTest
+{
+	private static Item[] items(int... idQuantityPairs)
+	{
+		Item[] items = new Item[idQuantityPairs.length / 2];
+		for (int i = 0; i < items.length; i++)
+		{
+			items[i] = new Item(idQuantityPairs[i * 2], idQuantityPairs[i * 2 + 1]);
+		}
+		return items;
+	}
+
+	@Test
+	public void unchangedContainerKeepsSnapshot()
+	{
+		ContainerSnapshotCache.Snapshot snapshot = ContainerSnapshotCache.Snapshot.EMPTY.update(items(995, 100, -1, 0, 952, 1));
+		assertEquals(1, snapshot.version);
+
+		// Equal contents in new Item objects, as the client sends them
+		assertSame(snapshot, snapshot.update(items(995, 100, -1, 0, 952, 1)));
+		assertSame(snapshot, snapshot.update(new Item[]{new Item(995, 100), null, new Item(952, 1)}));
+	}
+
+	@Test
+	public void emptyContainerKeepsSnapshot()
+	{
+		ContainerSnapshotCache.Snapshot snapshot = ContainerSnapshotCache.Snapshot.EMPTY.update(items(-1, 0, -1, 0));
+		assertTrue(snapshot.items.isEmpty());
+		assertSame(snapshot, snapshot.update(items(-1, 0, -1, 0)));
+		assertSame(ContainerSnapshotCache.Snapshot.EMPTY, ContainerSnapshotCache.Snapshot.EMPTY.update(new Item[0]));
+	}
+
+	@Test
+	public void changedSlotSharesTheOthers()
+	{
+		ContainerSnapshotCache.Snapshot before = ContainerSnapshotCache.Snapshot.EMPTY.update(items(995, 100, -1, 0, 952, 1));
+		ContainerSnapshotCache.Snapshot after = before.update(items(995, 150, -1, 0, 952, 1));
+
+		assertNotSame(before, after);
+		assertEquals(before.version + 1, after.version);
+		assertEquals(150, after.items.get(0).quantity);
+		assertSame(before.items.get(1), after.items.get(1));
+		assertArrayEquals(new int[]{0, 995, 150, 2, 952, 1}, after.packed);
+	}
+
+	@Test
+	public void detectsRemovedAndResizedContainers()
+	{
+		ContainerSnapshotCache.Snapshot before = ContainerSnapshotCache.Snapshot.EMPTY.update(items(995, 100, 952, 1));
+
+		ContainerSnapshotCache.Snapshot removed = before.update(items(995, 100, -1, 0));
+		assertEquals(1, removed.items.size());
+		assertSame(before.items.get(0), removed.items.get(0));
+
+		ContainerSnapshotCache.Snapshot grown = before.update(items(995, 100, 952, 1, -1, 0));
+		assertNotSame(before, grown);
+		assertEquals(2, grown.items.size());
+	}
+}
@@ -0,0 +1,215 @@
+package com.lennyslabyrinth;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GameStateCodecTest
+{
+	private static ApiClient.GameStateSubmission fullSubmission()
+	{
+		return new ApiClient.GameStateSubmission(
+			new ApiClient.LocationData(new ApiClient.WorldCoords(3222, 3218, 0), new ApiClient.LocalCoords(50, 52)),
+			Arrays.asList(new ApiClient.ItemData(0, 952, 1), new ApiClient.ItemData(3, 995, 12_000), new ApiClient.ItemData(27, 1, 1)),
+			Arrays.asList(new ApiClient.ItemData(0, 1163, 1), new ApiClient.ItemData(3, 1333, 1)),
+			863, null, null, "lenny-1", "Zezima");
+	}
+
+	// The DTOs have no equals, so compare what would go over the wire as JSON
+	private static void assertRoundTrip(ApiClient.GameStateSubmission submission)
+	{
+		ApiClient.GameStateSubmission decoded = GameStateCodec.decode(GameStateCodec.encode(submission));
+		assertEquals(WireAdapters.GSON.toJson(submission), WireAdapters.GSON.toJson(decoded));
+	}
+
+	private static void assertRejected(byte[] data)
+	{
+		try
+		{
+			GameStateCodec.decode(data);
+			fail("Decoded malformed data " + Arrays.toString(data));
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+	}
+
+	@Test
+	public void roundTripsFullSubmission()
+	{
+		assertRoundTrip(fullSubmission());
+	}
+
+	@Test
+	public void roundTripsNpcInteraction()
+	{
+		ApiClient.GameStateSubmission submission = fullSubmission();
+		submission.emote_id = null;
+		submission.npc_id = 3078;
+		submission.interaction_type = "Talk-to";
+		assertRoundTrip(submission);
+	}
+
+	@Test
+	public void roundTripsEmptyContainers()
+	{
+		ApiClient.GameStateSubmission submission = fullSubmission();
+		submission.inventory = new ArrayList<>();
+		submission.worn_items = new ArrayList<>();
+
+		ApiClient.GameStateSubmission decoded = GameStateCodec.decode(GameStateCodec.encode(submission));
+		assertEquals(Collections.emptyList(), decoded.inventory);
+		assertEquals(Collections.emptyList(), decoded.worn_items);
+		assertRoundTrip(submission);
+	}
+
+	@Test
+	public void roundTripsAbsentFields()
+	{
+		ApiClient.GameStateSubmission submission = new ApiClient.GameStateSubmission(null, null, null, null, null, null, null, null);
+		ApiClient.GameStateSubmission decoded = GameStateCodec.decode(GameStateCodec.encode(submission));
+		assertNull(decoded.location);
+		assertNull(decoded.inventory);
+		assertNull(decoded.worn_items);
+		assertNull(decoded.emote_id);
+		assertNull(decoded.npc_id);
+		assertNull(decoded.interaction_type);
+		assertNull(decoded.event_key);
+		assertNull(decoded.rsn);
+	}
+
+	@Test
+	public void roundTripsNegativeAndLargeValues()
+	{
+		ApiClient.GameStateSubmission submission = fullSubmission();
+		submission.location = new ApiClient.LocationData(new ApiClient.WorldCoords(-1, Integer.MIN_VALUE, 3), new ApiClient.LocalCoords(0, 103));
+		submission.emote_id = -1;
+		assertRoundTrip(submission);
+
+		submission.location = new ApiClient.LocationData(new ApiClient.WorldCoords(Integer.MAX_VALUE, -12_345, 0), new ApiClient.LocalCoords(Integer.MAX_VALUE, 0));
+		submission.emote_id = Integer.MIN_VALUE;
+		submission.inventory = Collections.singletonList(new ApiClient.ItemData(5, 995, Integer.MAX_VALUE));
+		assertRoundTrip(submission);
+	}
+
+	@Test
+	public void encodesItemIdsAsDeltasInSlotOrder()
+	{
+		// Given out of slot order, with ids that go down as well as up
+		ApiClient.GameStateSubmission submission = fullSubmission();
+		submission.inventory = Arrays.asList(
+			new ApiClient.ItemData(9, 2, 1),
+			new ApiClient.ItemData(1, 30_000, 5),
+			new ApiClient.ItemData(4, 29_999, 1));
+		submission.worn_items = null;
+
+		ApiClient.GameStateSubmission decoded = GameStateCodec.decode(GameStateCodec.encode(submission));
+		assertEquals(3, decoded.inventory.size());
+		int[][] expected = {{1, 30_000, 5}, {4, 29_999, 1}, {9, 2, 1}};
+		for (int i = 0; i < expected.length; i++)
+		{
+			ApiClient.ItemData item = decoded.inventory.get(i);
+			assertArrayEquals(expected[i], new int[]{item.slot, item.id, item.quantity});
+		}
+
+		// A one-step delta fits in a single byte, unlike the id itself
+		ApiClient.GameStateSubmission close = new ApiClient.GameStateSubmission(null,
+			Arrays.asList(new ApiClient.ItemData(0, 30_000, 1), new ApiClient.ItemData(1, 30_001, 1)), null, null, null, null, null, null);
+		ApiClient.GameStateSubmission single = new ApiClient.GameStateSubmission(null,
+			Collections.singletonList(new ApiClient.ItemData(0, 30_000, 1)), null, null, null, null, null, null);
+		assertEquals(GameStateCodec.encode(single).length + 2, GameStateCodec.encode(close).length);
+	}
+
+	@Test
+	public void rejectsTriggerLists()
+	{
+		// Version 1 has no trigger list; ApiClient sends these as JSON instead
+		ApiClient.GameStateSubmission submission = fullSubmission();
+		submission.triggers = Arrays.asList(
+			new ApiClient.TriggerData("emote", 863, null, null, null),
+			new ApiClient.TriggerData("npc_option", null, 3078, "Talk-to", null));
+		try
+		{
+			GameStateCodec.encode(submission);
+			fail("Encoded a trigger list");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+	}
+
+	@Test
+	public void rejectsDuplicateSlots()
+	{
+		ApiClient.GameStateSubmission submission = fullSubmission();
+		submission.inventory = Arrays.asList(new ApiClient.ItemData(2, 1, 1), new ApiClient.ItemData(2, 3, 1));
+		try
+		{
+			GameStateCodec.encode(submission);
+			fail("Encoded two items in one slot");
+		}
+		catch (IllegalArgumentException expected)
+		{
+		}
+	}
+
+	@Test
+	public void rejectsEveryTruncation()
+	{
+		byte[] encoded = GameStateCodec.encode(fullSubmission());
+		for (int length = 0; length < encoded.length; length++)
+		{
+			assertRejected(Arrays.copyOf(encoded, length));
+		}
+	}
+
+	@Test
+	public void rejectsMalformedData()
+	{
+		byte[] encoded = GameStateCodec.encode(fullSubmission());
+
+		byte[] badMagic = encoded.clone();
+		badMagic[0] = 'X';
+		assertRejected(badMagic);
+
+		byte[] badVersion = encoded.clone();
+		badVersion[1] = 2;
+		assertRejected(badVersion);
+
+		assertRejected(Arrays.copyOf(encoded, encoded.length + 1));
+
+		// Location only, with a varint that never ends
+		assertRejected(new byte[]{'L', 1, 1, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0});
+
+		// Inventory with a slot count far beyond any container
+		assertRejected(new byte[]{'L', 1, 2, (byte) 0xff, (byte) 0xff, 0x03});
+
+		// Event key with a negative length
+		assertRejected(new byte[]{'L', 1, 64, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f});
+	}
+
+	@Test
+	public void isSmallerThanJson()
+	{
+		ApiClient.GameStateSubmission submission = fullSubmission();
+		List<ApiClient.ItemData> inventory = new ArrayList<>();
+		for (int slot = 0; slot < 28; slot++)
+		{
+			inventory.add(new ApiClient.ItemData(slot, 1511 + slot, 1));
+		}
+		submission.inventory = inventory;
+
+		int json = WireAdapters.GSON.toJson(submission).getBytes().length;
+		int binary = GameStateCodec.encode(submission).length;
+		assertTrue("binary " + binary + " vs json " + json, binary * 5 < json);
+	}
+}
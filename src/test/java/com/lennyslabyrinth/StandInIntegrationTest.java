@@ -0,0 +1,180 @@
+package com.lennyslabyrinth;
+
+import com.lennyslabyrinth.standin.StandInServer;
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Runs the real ApiClient and SubmissionOutbox against the stand-in server on a free local port
+public class StandInIntegrationTest
+{
+	private static final long SEED = 31337;
+	private static final String EVENT_KEY = "test";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private StandInServer standIn;
+	private ApiClient apiClient;
+	private SubmissionOutbox outbox;
+
+	private StandInServer.Options options(double failureRate)
+	{
+		StandInServer.Options options = new StandInServer.Options();
+		options.port = 0;
+		options.failureRate = failureRate;
+		options.seed = SEED;
+		options.keys.put(EVENT_KEY, null);
+		return options;
+	}
+
+	private void start(StandInServer.Options options) throws Exception
+	{
+		standIn = new StandInServer(options);
+		standIn.start();
+
+		String baseUrl = standIn.getBaseUrl();
+		apiClient = new ApiClient(new OkHttpClient(), new LennysLabyrinthConfig()
+		{
+			@Override
+			public String apiBaseUrl()
+			{
+				return baseUrl;
+			}
+
+			@Override
+			public boolean binaryWireFormat()
+			{
+				return true;
+			}
+		});
+	}
+
+	@After
+	public void tearDown()
+	{
+		if (outbox != null)
+		{
+			outbox.stop();
+		}
+		if (apiClient != null)
+		{
+			apiClient.shutDownChannel();
+			apiClient.cancelAll();
+		}
+		if (standIn != null)
+		{
+			standIn.stop();
+		}
+	}
+
+	private static ApiClient.GameStateSubmission submission()
+	{
+		return new ApiClient.GameStateSubmission(
+			new ApiClient.LocationData(new ApiClient.WorldCoords(3222, 3218, 0), new ApiClient.LocalCoords(50, 52)),
+			null, null, 863, null, null, EVENT_KEY, "Zezima");
+	}
+
+	private ApiClient.ApiResponse submitDirectly() throws Exception
+	{
+		return apiClient.submitGuess(submission()).get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void outboxRetriesInjectedFailures() throws Exception
+	{
+		// The stand-in draws from the same seeded sequence, so these are exactly the requests it fails
+		Random replay = new Random(SEED);
+		int expectedFailures = 0;
+		while (replay.nextDouble() < 0.5)
+		{
+			expectedFailures++;
+		}
+		assertTrue("seed should fail at least once", expectedFailures > 0);
+
+		start(options(0.5));
+		AtomicInteger retries = new AtomicInteger();
+		outbox = new SubmissionOutbox(apiClient, folder.getRoot());
+		outbox.start(new SubmissionOutbox.Listener()
+		{
+			@Override
+			public void onRetryScheduled(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse lastError, long delayMillis)
+			{
+				assertEquals("SERVER_ERROR", lastError.errorType);
+				retries.incrementAndGet();
+			}
+
+			@Override
+			public void onRecoveredDelivery(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse response)
+			{
+			}
+		});
+
+		ApiClient.ApiResponse response = outbox.enqueue(submission()).get(30, TimeUnit.SECONDS);
+		assertTrue(response.message, response.success);
+		assertEquals(expectedFailures, retries.get());
+		assertEquals(expectedFailures + 1, standIn.getRequestCount());
+		assertEquals(0, outbox.getPendingCount());
+	}
+
+	@Test
+	public void circuitOpensAfterRepeatedFailures() throws Exception
+	{
+		start(options(1.0));
+
+		for (int i = 0; i < 5; i++)
+		{
+			assertEquals("SERVER_ERROR", submitDirectly().errorType);
+		}
+
+		// Rejected locally, without another request reaching the server
+		assertEquals("CIRCUIT_OPEN", submitDirectly().errorType);
+		assertEquals(5, standIn.getRequestCount());
+	}
+
+	@Test
+	public void fallsBackToJsonWhenBinaryIsRejected() throws Exception
+	{
+		StandInServer.Options options = options(0);
+		start(options);
+
+		// Sent as JSON; the response advertises the binary format
+		assertTrue(submitDirectly().success);
+		assertEquals(1, standIn.getRequestCount());
+
+		// The binary request is refused with 415 and resent as JSON
+		options.binary = false;
+		assertTrue(submitDirectly().success);
+		assertEquals(3, standIn.getRequestCount());
+
+		// The client has stopped trying the binary format
+		assertTrue(submitDirectly().success);
+		assertEquals(4, standIn.getRequestCount());
+	}
+
+	@Test
+	public void resendsAreAnsweredOnce() throws Exception
+	{
+		start(options(0));
+		ApiClient.GameStateSubmission submission = submission();
+
+		// As after a live channel fallback or an outbox retry: the same submission object, as JSON and then binary
+		assertTrue(apiClient.submitGuess(submission).get(10, TimeUnit.SECONDS).success);
+		assertTrue(apiClient.submitGuess(submission).get(10, TimeUnit.SECONDS).success);
+		assertEquals(2, standIn.getRequestCount());
+		assertEquals(1, standIn.getJudgedCount());
+
+		// A deliberate resubmission is a new request
+		assertTrue(apiClient.submitGuess(submission.copyForResubmit()).get(10, TimeUnit.SECONDS).success);
+		assertEquals(2, standIn.getJudgedCount());
+	}
+}
@@ -0,0 +1,118 @@
+package com.lennyslabyrinth;
+
+import okhttp3.OkHttpClient;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class SubmissionRateLimiterTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final SubmissionRateLimiter limiter = new SubmissionRateLimiter();
+	private ApiClient apiClient;
+	private SubmissionOutbox outbox;
+
+	private static final SubmissionOutbox.Listener IGNORE = new SubmissionOutbox.Listener()
+	{
+		@Override
+		public void onRetryScheduled(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse lastError, long delayMillis)
+		{
+		}
+
+		@Override
+		public void onRecoveredDelivery(ApiClient.GameStateSubmission submission, ApiClient.ApiResponse response)
+		{
+		}
+	};
+
+	@After
+	public void tearDown()
+	{
+		limiter.stop();
+		if (outbox != null)
+		{
+			outbox.stop();
+		}
+		if (apiClient != null)
+		{
+			apiClient.cancelAll();
+		}
+	}
+
+	private SubmissionOutbox startOutbox()
+	{
+		if (apiClient == null)
+		{
+			// Nothing listens here, so deliveries fail and entries stay pending
+			apiClient = new ApiClient(new OkHttpClient(), new LennysLabyrinthConfig()
+			{
+				@Override
+				public String apiBaseUrl()
+				{
+					return "http://127.0.0.1:1";
+				}
+			});
+		}
+		SubmissionOutbox started = new SubmissionOutbox(apiClient, folder.getRoot());
+		started.start(IGNORE);
+		return started;
+	}
+
+	private static ApiClient.GameStateSubmission submission()
+	{
+		return new ApiClient.GameStateSubmission(
+			new ApiClient.LocationData(new ApiClient.WorldCoords(3222, 3218, 0), new ApiClient.LocalCoords(50, 52)),
+			null, null, 863, null, null, "test", "Zezima");
+	}
+
+	@Test
+	public void stopHandsDeferredSubmissionsToTheOutbox()
+	{
+		outbox = startOutbox();
+		limiter.start();
+		limiter.defer(() -> outbox.enqueue(submission()), TimeUnit.MINUTES.toMillis(1));
+		assertEquals(0, outbox.getPendingCount());
+
+		limiter.stop();
+		assertEquals(1, outbox.getPendingCount());
+
+		// Journaled, so it is still there after a restart
+		outbox.stop();
+		outbox = startOutbox();
+		assertEquals(1, outbox.getPendingCount());
+	}
+
+	@Test
+	public void deferredSubmissionRunsOnce() throws Exception
+	{
+		AtomicInteger runs = new AtomicInteger();
+		limiter.start();
+		limiter.defer(runs::incrementAndGet, 10);
+
+		long deadline = System.currentTimeMillis() + 5_000;
+		while (runs.get() == 0 && System.currentTimeMillis() < deadline)
+		{
+			Thread.sleep(5);
+		}
+
+		// Already sent, so stopping does not send it again
+		limiter.stop();
+		assertEquals(1, runs.get());
+	}
+
+	@Test
+	public void deferWithoutStartRunsAtOnce()
+	{
+		AtomicInteger runs = new AtomicInteger();
+		limiter.defer(runs::incrementAndGet, TimeUnit.MINUTES.toMillis(1));
+		assertEquals(1, runs.get());
+	}
+}
@@ -0,0 +1,489 @@
+package com.lennyslabyrinth.constraints;
+
+import com.lennyslabyrinth.ApiClient;
+import org.junit.Test;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConstraintCompilerTest
+{
+	private static final ApiClient.ItemData SPADE = new ApiClient.ItemData(0, 952, 1);
+	private static final ApiClient.ItemData COINS = new ApiClient.ItemData(3, 995, 500);
+	private static final ApiClient.ItemData MORE_COINS = new ApiClient.ItemData(7, 995, 700);
+	private static final ApiClient.ItemData HELMET = new ApiClient.ItemData(0, 1163, 1);
+	private static final ApiClient.ItemData ARROWS = new ApiClient.ItemData(13, 882, 150);
+
+	// Fails the test if a check reads this container
+	private static final List<ApiClient.ItemData> UNREADABLE = new AbstractList<ApiClient.ItemData>()
+	{
+		@Override
+		public ApiClient.ItemData get(int index)
+		{
+			throw new AssertionError("container read");
+		}
+
+		@Override
+		public int size()
+		{
+			throw new AssertionError("container read");
+		}
+	};
+
+	private static ApiClient.GameStateSubmission state()
+	{
+		return new ApiClient.GameStateSubmission(
+			new ApiClient.LocationData(new ApiClient.WorldCoords(3222, 3218, 0), new ApiClient.LocalCoords(50, 52)),
+			Arrays.asList(SPADE, COINS, MORE_COINS),
+			Arrays.asList(HELMET, ARROWS),
+			863, null, null, "lenny-spring-1", "Zezima");
+	}
+
+	private static ApiClient.GameStateSubmission npcState(int npcId, String option)
+	{
+		ApiClient.GameStateSubmission state = state();
+		state.emote_id = null;
+		state.npc_id = npcId;
+		state.interaction_type = option;
+		return state;
+	}
+
+	private static boolean passes(Constraint constraint, ApiClient.GameStateSubmission state)
+	{
+		return ConstraintCompiler.compile(Collections.singletonList(constraint)).matches(state);
+	}
+
+	private static LocationConstraint location(String type)
+	{
+		return new LocationConstraint(type);
+	}
+
+	private static InventoryConstraint inventory(String type, Integer itemId)
+	{
+		InventoryConstraint constraint = new InventoryConstraint(type);
+		constraint.setItemId(itemId);
+		return constraint;
+	}
+
+	private static EquipmentConstraint equipment(String type, Integer itemId)
+	{
+		EquipmentConstraint constraint = new EquipmentConstraint(type);
+		constraint.setItemId(itemId);
+		return constraint;
+	}
+
+	private static EventKeyConstraint eventKey(String type)
+	{
+		return new EventKeyConstraint(type);
+	}
+
+	@Test
+	public void locationExact()
+	{
+		LocationConstraint exact = location("exact");
+		exact.setExactX(3222);
+		exact.setExactY(3218);
+		assertTrue(passes(exact, state()));
+
+		exact.setExactY(3219);
+		assertFalse(passes(exact, state()));
+	}
+
+	@Test
+	public void locationBoundsWithOpenSides()
+	{
+		LocationConstraint bounds = location("bounds");
+		bounds.setMinX(3200);
+		bounds.setMaxY(3218);
+		assertTrue(passes(bounds, state()));
+
+		bounds.setMaxX(3221);
+		assertFalse(passes(bounds, state()));
+	}
+
+	@Test
+	public void locationTolerance()
+	{
+		LocationConstraint tolerance = location("tolerance");
+		tolerance.setExactX(3220);
+		tolerance.setExactY(3220);
+		tolerance.setTolerance(2);
+		assertTrue(passes(tolerance, state()));
+
+		tolerance.setTolerance(1);
+		assertFalse(passes(tolerance, state()));
+	}
+
+	@Test
+	public void locationToleranceClampsInsteadOfOverflowing()
+	{
+		ApiClient.GameStateSubmission state = state();
+
+		LocationConstraint nearMax = location("tolerance");
+		nearMax.setExactX(Integer.MAX_VALUE - 1);
+		nearMax.setExactY(3218);
+		nearMax.setTolerance(10);
+		state.location.world.x = Integer.MAX_VALUE;
+		assertTrue(passes(nearMax, state));
+
+		LocationConstraint huge = location("tolerance");
+		huge.setExactX(0);
+		huge.setExactY(0);
+		huge.setTolerance(Integer.MAX_VALUE);
+		state.location.world.x = Integer.MIN_VALUE + 1;
+		state.location.world.y = Integer.MAX_VALUE;
+		assertTrue(passes(huge, state));
+	}
+
+	@Test
+	public void locationPlane()
+	{
+		LocationConstraint exact = location("exact");
+		exact.setExactX(3222);
+		exact.setExactY(3218);
+		exact.setPlane(1);
+		assertFalse(passes(exact, state()));
+
+		exact.setPlane(0);
+		assertTrue(passes(exact, state()));
+	}
+
+	@Test
+	public void locationMissingFieldsNeverPass()
+	{
+		LocationConstraint exact = location("exact");
+		exact.setExactX(3222);
+		assertFalse(passes(exact, state()));
+
+		LocationConstraint tolerance = location("tolerance");
+		tolerance.setExactX(3222);
+		tolerance.setExactY(3218);
+		assertFalse(passes(tolerance, state()));
+
+		assertFalse(passes(location("circle"), state()));
+		assertFalse(passes(new LocationConstraint(), state()));
+
+		LocationConstraint anywhere = location("bounds");
+		ApiClient.GameStateSubmission noLocation = state();
+		noLocation.location = null;
+		assertTrue(passes(anywhere, state()));
+		assertFalse(passes(anywhere, noLocation));
+	}
+
+	@Test
+	public void inventoryContains()
+	{
+		assertTrue(passes(inventory("contains", 952), state()));
+		assertFalse(passes(inventory("contains", 1351), state()));
+
+		InventoryConstraint inSlot = inventory("contains", 995);
+		inSlot.setRequiredSlot(7);
+		assertTrue(passes(inSlot, state()));
+		inSlot.setRequiredSlot(8);
+		assertFalse(passes(inSlot, state()));
+
+		// One stack must hold the quantity on its own
+		InventoryConstraint quantity = inventory("contains", 995);
+		quantity.setMinQuantity(700);
+		assertTrue(passes(quantity, state()));
+		quantity.setMinQuantity(701);
+		assertFalse(passes(quantity, state()));
+	}
+
+	@Test
+	public void inventoryExactSlot()
+	{
+		InventoryConstraint exact = inventory("exact", 995);
+		exact.setExactSlot(3);
+		assertTrue(passes(exact, state()));
+
+		exact.setExactSlot(0);
+		assertFalse(passes(exact, state()));
+	}
+
+	@Test
+	public void inventoryAnyOf()
+	{
+		InventoryConstraint anyOf = new InventoryConstraint("any_of");
+		anyOf.setItemIds(Arrays.asList(1351, null, 952));
+		assertTrue(passes(anyOf, state()));
+
+		anyOf.setItemIds(Collections.singletonList(1351));
+		assertFalse(passes(anyOf, state()));
+
+		anyOf.setItemIds(Collections.emptyList());
+		assertFalse(passes(anyOf, state()));
+	}
+
+	@Test
+	public void inventoryMinimumQuantityAddsStacks()
+	{
+		InventoryConstraint total = inventory("minimum_quantity", 995);
+		total.setMinQuantity(1200);
+		assertTrue(passes(total, state()));
+
+		total.setMinQuantity(1201);
+		assertFalse(passes(total, state()));
+	}
+
+	@Test
+	public void inventoryTotalDoesNotOverflow()
+	{
+		ApiClient.GameStateSubmission state = state();
+		state.inventory = Arrays.asList(new ApiClient.ItemData(0, 995, Integer.MAX_VALUE), new ApiClient.ItemData(1, 995, Integer.MAX_VALUE));
+
+		InventoryConstraint total = inventory("minimum_quantity", 995);
+		total.setMinQuantity(Integer.MAX_VALUE);
+		assertTrue(passes(total, state));
+	}
+
+	@Test
+	public void inventoryMissingFieldsNeverPass()
+	{
+		assertFalse(passes(inventory("contains", null), state()));
+		assertFalse(passes(inventory("exact", 995), state()));
+		assertFalse(passes(inventory("minimum_quantity", null), state()));
+		assertFalse(passes(new InventoryConstraint("any_of"), state()));
+		assertFalse(passes(inventory("holds", 995), state()));
+
+		ApiClient.GameStateSubmission empty = state();
+		empty.inventory = null;
+		assertFalse(passes(inventory("contains", 952), empty));
+	}
+
+	@Test
+	public void equipmentTypes()
+	{
+		assertTrue(passes(equipment("contains", 1163), state()));
+		// Inventory items are not worn
+		assertFalse(passes(equipment("contains", 952), state()));
+
+		EquipmentConstraint slot = equipment("exact_slot", 882);
+		slot.setSlot(13);
+		slot.setMinQuantity(100);
+		assertTrue(passes(slot, state()));
+		slot.setMinQuantity(151);
+		assertFalse(passes(slot, state()));
+		slot.setMinQuantity(null);
+		slot.setSlot(0);
+		assertFalse(passes(slot, state()));
+
+		EquipmentConstraint anyOf = new EquipmentConstraint("any_of");
+		anyOf.setItemIds(Arrays.asList(882, 884));
+		assertTrue(passes(anyOf, state()));
+	}
+
+	@Test
+	public void equipmentMissingFieldsNeverPass()
+	{
+		assertFalse(passes(equipment("contains", null), state()));
+		assertFalse(passes(equipment("exact_slot", 1163), state()));
+		assertFalse(passes(new EquipmentConstraint("any_of"), state()));
+		assertFalse(passes(equipment("exact", 1163), state()));
+	}
+
+	@Test
+	public void actionEmotes()
+	{
+		ActionConstraint emote = new ActionConstraint("emote");
+		emote.setEmoteId(863);
+		assertTrue(passes(emote, state()));
+		emote.setEmoteId(864);
+		assertFalse(passes(emote, state()));
+		emote.setEmoteId(null);
+		assertFalse(passes(emote, state()));
+
+		ActionConstraint anyEmote = new ActionConstraint("any_emote");
+		assertTrue(passes(anyEmote, state()));
+		assertFalse(passes(anyEmote, npcState(3078, "Talk-to")));
+		anyEmote.setEmoteIds(Arrays.asList(866, 863));
+		assertTrue(passes(anyEmote, state()));
+		anyEmote.setEmoteIds(Collections.emptyList());
+		assertFalse(passes(anyEmote, state()));
+	}
+
+	@Test
+	public void actionNpcOptionsIgnoreCase()
+	{
+		ActionConstraint npc = new ActionConstraint("npc_interaction");
+		npc.setNpcId(3078);
+		assertTrue(passes(npc, npcState(3078, "Pickpocket")));
+		assertFalse(passes(npc, npcState(3079, "Pickpocket")));
+		assertFalse(passes(npc, state()));
+
+		npc.setInteractionType("talk-TO");
+		assertTrue(passes(npc, npcState(3078, "Talk-to")));
+		assertFalse(passes(npc, npcState(3078, "Pickpocket")));
+		assertFalse(passes(npc, npcState(3078, null)));
+
+		ActionConstraint anyNpc = new ActionConstraint("any_npc");
+		anyNpc.setInteractionTypes(Arrays.asList("ATTACK", "talk-to"));
+		assertTrue(passes(anyNpc, npcState(1, "Talk-to")));
+		assertTrue(passes(anyNpc, npcState(2, "attack")));
+		assertFalse(passes(anyNpc, npcState(2, "Trade")));
+
+		anyNpc.setNpcIds(Collections.singletonList(2));
+		assertFalse(passes(anyNpc, npcState(1, "Talk-to")));
+	}
+
+	@Test
+	public void actionMissingFieldsNeverPass()
+	{
+		assertFalse(passes(new ActionConstraint("npc_interaction"), npcState(3078, "Talk-to")));
+		assertFalse(passes(new ActionConstraint("dance"), state()));
+		assertFalse(passes(new ActionConstraint(), state()));
+	}
+
+	@Test
+	public void actionChecksEveryTrigger()
+	{
+		ApiClient.GameStateSubmission state = state();
+		state.triggers = Arrays.asList(
+			new ApiClient.TriggerData("emote", 863, null, null, null),
+			new ApiClient.TriggerData("npc_interaction", null, 3078, "Talk-to", null));
+
+		ActionConstraint npc = new ActionConstraint("npc_interaction");
+		npc.setNpcId(3078);
+		npc.setInteractionType("Talk-to");
+		assertTrue(passes(npc, state));
+
+		ActionConstraint emote = new ActionConstraint("emote");
+		emote.setEmoteId(863);
+		assertTrue(passes(emote, state));
+
+		// With a trigger list, the top-level fields are not read again
+		state.emote_id = 866;
+		emote.setEmoteId(866);
+		assertFalse(passes(emote, state));
+
+		// One trigger has to satisfy the whole constraint
+		npc.setInteractionType("Attack");
+		assertFalse(passes(npc, state));
+	}
+
+	@Test
+	public void eventKeyTypes()
+	{
+		EventKeyConstraint exact = eventKey("exact");
+		exact.setExactKey("lenny-spring-1");
+		assertTrue(passes(exact, state()));
+		exact.setExactKey("Lenny-spring-1");
+		assertFalse(passes(exact, state()));
+
+		EventKeyConstraint prefix = eventKey("prefix");
+		prefix.setPrefix("lenny-");
+		assertTrue(passes(prefix, state()));
+
+		EventKeyConstraint suffix = eventKey("suffix");
+		suffix.setSuffix("-2");
+		assertFalse(passes(suffix, state()));
+
+		EventKeyConstraint anyOf = eventKey("any_of");
+		anyOf.setAllowedKeys(Arrays.asList("zeta", "lenny-spring-1", "alpha"));
+		assertTrue(passes(anyOf, state()));
+		anyOf.setAllowedKeys(Collections.singletonList("alpha"));
+		assertFalse(passes(anyOf, state()));
+
+		ApiClient.GameStateSubmission noKey = state();
+		noKey.event_key = null;
+		assertFalse(passes(prefix, noKey));
+	}
+
+	@Test
+	public void eventKeyMissingFieldsNeverPass()
+	{
+		assertFalse(passes(eventKey("exact"), state()));
+		assertFalse(passes(eventKey("prefix"), state()));
+		assertFalse(passes(eventKey("suffix"), state()));
+		assertFalse(passes(eventKey("any_of"), state()));
+		assertFalse(passes(eventKey("regex"), state()));
+	}
+
+	@Test
+	public void unknownConstraintClassNeverPasses()
+	{
+		Constraint unknown = new Constraint()
+		{
+			@Override
+			public String description()
+			{
+				return "unknown";
+			}
+
+			@Override
+			public String getConstraintType()
+			{
+				return "weather";
+			}
+		};
+		assertFalse(passes(unknown, state()));
+	}
+
+	@Test
+	public void evaluateKeepsAuthoredOrder()
+	{
+		LocationConstraint wrongPlace = location("exact");
+		wrongPlace.setExactX(0);
+		wrongPlace.setExactY(0);
+		ActionConstraint wave = new ActionConstraint("emote");
+		wave.setEmoteId(863);
+
+		CompiledAnswer answer = ConstraintCompiler.compile(Arrays.asList(inventory("contains", 952), wrongPlace, wave));
+		assertEquals(3, answer.size());
+		assertArrayEquals(new boolean[]{true, false, true}, answer.evaluate(state()));
+		assertFalse(answer.matches(state()));
+	}
+
+	@Test
+	public void matchesRunsCheapChecksFirst()
+	{
+		LocationConstraint elsewhere = location("exact");
+		elsewhere.setExactX(0);
+		elsewhere.setExactY(0);
+		ActionConstraint otherEmote = new ActionConstraint("emote");
+		otherEmote.setEmoteId(866);
+		LocationConstraint here = location("exact");
+		here.setExactX(3222);
+		here.setExactY(3218);
+		ActionConstraint wave = new ActionConstraint("emote");
+		wave.setEmoteId(863);
+
+		ApiClient.GameStateSubmission state = state();
+		state.inventory = UNREADABLE;
+		state.worn_items = UNREADABLE;
+
+		// Authored with the item checks first, but a failing location or action decides before any container is read
+		assertFalse(ConstraintCompiler.compile(Arrays.asList(inventory("contains", 952), equipment("contains", 1163), elsewhere)).matches(state));
+		assertFalse(ConstraintCompiler.compile(Arrays.asList(inventory("contains", 952), otherEmote, here)).matches(state));
+		// An invalid constraint is cheapest of all
+		assertFalse(ConstraintCompiler.compile(Arrays.asList(inventory("contains", 952), here, wave, eventKey("exact"))).matches(state));
+
+		// Equipment is read before the inventory
+		state.worn_items = Collections.singletonList(HELMET);
+		assertFalse(ConstraintCompiler.compile(Arrays.asList(inventory("contains", 952), equipment("contains", 882))).matches(state));
+	}
+
+	@Test
+	public void cachesByContent()
+	{
+		InventoryConstraint first = inventory("contains", 952);
+		InventoryConstraint second = inventory("contains", 952);
+		CompiledAnswer answer = ConstraintCompiler.compile(Collections.singletonList(first));
+		assertSame(answer, ConstraintCompiler.compile(Collections.singletonList(second)));
+
+		// An edited bean compiles again
+		first.setItemId(995);
+		CompiledAnswer edited = ConstraintCompiler.compile(Collections.singletonList(first));
+		assertNotSame(answer, edited);
+		assertTrue(edited.matches(state()));
+	}
+}
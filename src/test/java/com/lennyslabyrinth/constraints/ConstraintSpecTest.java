@@ -0,0 +1,276 @@
+package com.lennyslabyrinth.constraints;
+
+import com.lennyslabyrinth.WireAdapters;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ConstraintSpecTest
+{
+	// The beans have no equals, so compare what would go over the wire as JSON
+	private static void assertRoundTrip(Constraint bean)
+	{
+		Constraint converted = ConstraintSpec.of(bean).toBean();
+		assertEquals(bean.getClass(), converted.getClass());
+		assertEquals(WireAdapters.GSON.toJson(bean), WireAdapters.GSON.toJson(converted));
+	}
+
+	private static void assertSameSpec(Constraint a, Constraint b)
+	{
+		ConstraintSpec specA = ConstraintSpec.of(a);
+		ConstraintSpec specB = ConstraintSpec.of(b);
+		assertEquals(specA, specB);
+		assertEquals(specA.hashCode(), specB.hashCode());
+	}
+
+	private static void assertDifferentSpec(Constraint a, Constraint b)
+	{
+		assertNotEquals(ConstraintSpec.of(a), ConstraintSpec.of(b));
+		assertNotEquals(ConstraintSpec.of(b), ConstraintSpec.of(a));
+	}
+
+	private static InventoryConstraint anyOf(Integer... itemIds)
+	{
+		InventoryConstraint bean = new InventoryConstraint("any_of");
+		bean.setItemIds(Arrays.asList(itemIds));
+		return bean;
+	}
+
+	private static EventKeyConstraint allowedKeys(String... keys)
+	{
+		EventKeyConstraint bean = new EventKeyConstraint("any_of");
+		bean.setAllowedKeys(Arrays.asList(keys));
+		return bean;
+	}
+
+	@Test
+	public void roundTripsLocation()
+	{
+		LocationConstraint bounds = new LocationConstraint("bounds");
+		bounds.setMinX(-3200);
+		bounds.setMaxX(3300);
+		bounds.setMaxY(Integer.MAX_VALUE);
+		bounds.setPlane(0);
+		assertRoundTrip(bounds);
+
+		LocationConstraint tolerance = new LocationConstraint("tolerance");
+		tolerance.setExactX(3222);
+		tolerance.setExactY(3218);
+		tolerance.setTolerance(3);
+		assertRoundTrip(tolerance);
+
+		assertRoundTrip(new LocationConstraint());
+	}
+
+	@Test
+	public void roundTripsInventory()
+	{
+		InventoryConstraint contains = new InventoryConstraint("contains");
+		contains.setItemId(995);
+		contains.setMinQuantity(1000);
+		contains.setRequiredSlot(27);
+		assertRoundTrip(contains);
+
+		InventoryConstraint exact = new InventoryConstraint("exact");
+		exact.setItemId(952);
+		exact.setExactSlot(0);
+		assertRoundTrip(exact);
+
+		assertRoundTrip(anyOf(952, 995, 1351));
+	}
+
+	@Test
+	public void roundTripsEquipment()
+	{
+		EquipmentConstraint slot = new EquipmentConstraint("slot");
+		slot.setItemId(1163);
+		slot.setSlot(0);
+		assertRoundTrip(slot);
+
+		EquipmentConstraint anyOf = new EquipmentConstraint("any_of");
+		anyOf.setItemIds(Arrays.asList(882, 884));
+		anyOf.setMinQuantity(100);
+		assertRoundTrip(anyOf);
+	}
+
+	@Test
+	public void roundTripsAction()
+	{
+		ActionConstraint emote = new ActionConstraint("emote");
+		emote.setEmoteId(863);
+		emote.setEmoteIds(Arrays.asList(862, 863));
+		assertRoundTrip(emote);
+
+		ActionConstraint npc = new ActionConstraint("npc_interaction");
+		npc.setNpcId(3078);
+		npc.setNpcIds(Arrays.asList(3078, 3079));
+		npc.setInteractionType("Talk-to");
+		npc.setInteractionTypes(Arrays.asList("Pickpocket", "Talk-to"));
+		assertRoundTrip(npc);
+	}
+
+	@Test
+	public void roundTripsEventKey()
+	{
+		EventKeyConstraint exact = new EventKeyConstraint("exact");
+		exact.setExactKey("lenny-spring-1");
+		assertRoundTrip(exact);
+
+		EventKeyConstraint affixes = new EventKeyConstraint("prefix");
+		affixes.setPrefix("lenny-");
+		affixes.setSuffix("-1");
+		assertRoundTrip(affixes);
+
+		assertRoundTrip(allowedKeys("a", "b", "c"));
+	}
+
+	@Test
+	public void roundTripSortsAndDeduplicatesSets()
+	{
+		InventoryConstraint converted = (InventoryConstraint) ConstraintSpec.of(anyOf(995, null, 952, 995)).toBean();
+		assertEquals(Arrays.asList(952, 995), converted.getItemIds());
+
+		ActionConstraint npc = new ActionConstraint("npc_interaction");
+		npc.setInteractionTypes(Arrays.asList("Talk-to", null, "Pickpocket", "Talk-to"));
+		ActionConstraint action = (ActionConstraint) ConstraintSpec.of(npc).toBean();
+		assertEquals(Arrays.asList("Pickpocket", "Talk-to"), action.getInteractionTypes());
+
+		EventKeyConstraint keys = (EventKeyConstraint) ConstraintSpec.of(allowedKeys("b", "a", "b")).toBean();
+		assertEquals(Arrays.asList("a", "b"), keys.getAllowedKeys());
+	}
+
+	@Test
+	public void orderAndDuplicatesDoNotMatter()
+	{
+		assertSameSpec(anyOf(952, 995, 1351), anyOf(1351, 952, 995, 952, null));
+		assertSameSpec(allowedKeys("a", "b", "c"), allowedKeys("c", "a", "b", "a"));
+
+		EquipmentConstraint worn = new EquipmentConstraint("any_of");
+		worn.setItemIds(Arrays.asList(884, 882));
+		EquipmentConstraint reordered = new EquipmentConstraint("any_of");
+		reordered.setItemIds(Arrays.asList(882, 884, 884));
+		assertSameSpec(worn, reordered);
+
+		ActionConstraint action = new ActionConstraint("npc_interaction");
+		action.setEmoteIds(Arrays.asList(863, 862));
+		action.setNpcIds(Arrays.asList(3079, 3078));
+		action.setInteractionTypes(Arrays.asList("Talk-to", "Pickpocket"));
+		ActionConstraint shuffled = new ActionConstraint("npc_interaction");
+		shuffled.setEmoteIds(Arrays.asList(862, 863, 862));
+		shuffled.setNpcIds(Arrays.asList(3078, 3078, 3079));
+		shuffled.setInteractionTypes(Arrays.asList("Pickpocket", "Talk-to", "Pickpocket"));
+		assertSameSpec(action, shuffled);
+	}
+
+	@Test
+	public void differentContentsDiffer()
+	{
+		assertDifferentSpec(anyOf(952, 995), anyOf(952, 996));
+		assertDifferentSpec(anyOf(952, 995), anyOf(952));
+		assertDifferentSpec(allowedKeys("a", "b"), allowedKeys("a", "B"));
+
+		LocationConstraint exact = new LocationConstraint("exact");
+		exact.setExactX(3222);
+		exact.setExactY(3218);
+		LocationConstraint moved = new LocationConstraint("exact");
+		moved.setExactX(3222);
+		moved.setExactY(3219);
+		assertDifferentSpec(exact, moved);
+
+		// Zero is a value, not "not given"
+		LocationConstraint onPlane = new LocationConstraint("exact");
+		onPlane.setExactX(3222);
+		onPlane.setExactY(3218);
+		onPlane.setPlane(0);
+		assertDifferentSpec(exact, onPlane);
+	}
+
+	@Test
+	public void inventoryAndEquipmentDiffer()
+	{
+		InventoryConstraint carried = anyOf(882);
+		EquipmentConstraint worn = new EquipmentConstraint("any_of");
+		worn.setItemIds(Collections.singletonList(882));
+		assertDifferentSpec(carried, worn);
+	}
+
+	@Test
+	public void nullAndEmptyListsDiffer()
+	{
+		InventoryConstraint none = new InventoryConstraint("any_of");
+		InventoryConstraint empty = anyOf();
+		assertDifferentSpec(none, empty);
+
+		// A list of nulls is empty, not absent
+		assertSameSpec(empty, anyOf((Integer) null));
+
+		ActionConstraint anyEmote = new ActionConstraint("any_emote");
+		ActionConstraint noEmote = new ActionConstraint("any_emote");
+		noEmote.setEmoteIds(Collections.emptyList());
+		assertDifferentSpec(anyEmote, noEmote);
+
+		EventKeyConstraint noKeys = new EventKeyConstraint("any_of");
+		assertDifferentSpec(noKeys, allowedKeys());
+
+		ActionConstraint options = new ActionConstraint("npc_interaction");
+		ActionConstraint noOptions = new ActionConstraint("npc_interaction");
+		noOptions.setInteractionTypes(Collections.emptyList());
+		assertDifferentSpec(options, noOptions);
+	}
+
+	@Test
+	public void toBeanKeepsNullAndEmptyLists()
+	{
+		assertNull(((InventoryConstraint) ConstraintSpec.of(new InventoryConstraint("any_of")).toBean()).getItemIds());
+		assertEquals(Collections.emptyList(), ((InventoryConstraint) ConstraintSpec.of(anyOf()).toBean()).getItemIds());
+
+		ActionConstraint action = (ActionConstraint) ConstraintSpec.of(new ActionConstraint("any_npc")).toBean();
+		assertNull(action.getNpcIds());
+		assertNull(action.getInteractionTypes());
+
+		EventKeyConstraint keys = (EventKeyConstraint) ConstraintSpec.of(allowedKeys()).toBean();
+		assertEquals(Collections.emptyList(), keys.getAllowedKeys());
+	}
+
+	@Test
+	public void specsAreImmutableCopies()
+	{
+		InventoryConstraint bean = anyOf(952, 995);
+		ConstraintSpec.Items spec = (ConstraintSpec.Items) ConstraintSpec.of(bean);
+		bean.getItemIds().set(0, 1351);
+		bean.setMinQuantity(5);
+
+		assertArrayEquals(new int[]{952, 995}, spec.itemIds);
+		assertFalse(ConstraintSpec.isSet(spec.minQuantity));
+		assertTrue(ConstraintSpec.isSet(((ConstraintSpec.Items) ConstraintSpec.of(bean)).minQuantity));
+	}
+
+	@Test
+	public void unknownConstraintHasNoSpec()
+	{
+		Constraint unknown = new Constraint()
+		{
+			@Override
+			public String description()
+			{
+				return "unknown";
+			}
+
+			@Override
+			public String getConstraintType()
+			{
+				return "unknown";
+			}
+		};
+		assertNull(ConstraintSpec.of(unknown));
+		assertNull(ConstraintSpec.of(Collections.singletonList(unknown)).get(0));
+	}
+}
@@ -0,0 +1,83 @@
+package com.lennyslabyrinth.triggers;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnimationTableTest
+{
+	private static final String BASE = "{\"version\": 2, \"animations\": ["
+		+ "{\"id\": 863, \"name\": \"Wave\", \"category\": \"emote\"},"
+		+ "{\"id\": 1132, \"name\": \"Jig\", \"category\": \"emote\", \"estimated\": true},"
+		+ "{\"id\": 2104, \"name\": \"Headbang\", \"category\": \"emote\", \"estimated\": true},"
+		+ "{\"id\": 830, \"name\": \"Dig\", \"category\": \"dig\"}]}";
+
+	private static AnimationTable base() throws IOException
+	{
+		return AnimationTable.parse(new StringReader(BASE));
+	}
+
+	@Test
+	public void readsEstimatedFlag() throws IOException
+	{
+		AnimationTable table = base();
+		assertTrue(table.isEstimated(1132));
+		assertFalse(table.isEstimated(863));
+		assertFalse(table.isEstimated(-1));
+	}
+
+	@Test
+	public void observedIdReplacesEstimateForSameEmote() throws IOException
+	{
+		AnimationTable learned = AnimationTable.EMPTY.with(4500, "jig", AnimationTable.Category.EMOTE);
+		AnimationTable table = base().merge(learned);
+
+		assertTrue(table.isTrigger(4500));
+		assertFalse(table.isTrigger(1132));
+		// Other estimates and confirmed ids are untouched
+		assertTrue(table.isEstimated(2104));
+		assertArrayEquals(new int[]{830, 863, 2104, 4500}, table.getIds());
+	}
+
+	@Test
+	public void observedIdConfirmsEstimate() throws IOException
+	{
+		AnimationTable learned = AnimationTable.EMPTY.with(1132, "Jig", AnimationTable.Category.EMOTE);
+		AnimationTable table = base().merge(learned);
+
+		assertTrue(table.isTrigger(1132));
+		assertFalse(table.isEstimated(1132));
+		assertEquals("Jig", table.getName(1132));
+	}
+
+	@Test
+	public void observedIdNeverReplacesConfirmedEntry() throws IOException
+	{
+		AnimationTable learned = AnimationTable.EMPTY.with(4501, "Wave", AnimationTable.Category.EMOTE)
+			.with(830, "Not a dig", AnimationTable.Category.EMOTE);
+		AnimationTable table = base().merge(learned);
+
+		assertTrue(table.isTrigger(863));
+		assertTrue(table.isTrigger(4501));
+		assertEquals(AnimationTable.Category.DIG, table.getCategory(830));
+	}
+
+	@Test
+	public void writesEstimatedFlag() throws IOException
+	{
+		StringWriter out = new StringWriter();
+		base().write(out);
+		AnimationTable reread = AnimationTable.parse(new StringReader(out.toString()));
+
+		assertTrue(reread.isEstimated(1132));
+		assertFalse(reread.isEstimated(863));
+		assertArrayEquals(base().getIds(), reread.getIds());
+	}
+}
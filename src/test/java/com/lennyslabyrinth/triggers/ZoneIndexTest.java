@@ -0,0 +1,156 @@
+package com.lennyslabyrinth.triggers;
+
+import com.lennyslabyrinth.constraints.LocationConstraint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ZoneIndexTest
+{
+	private final BitSet out = new BitSet();
+
+	private static LocationConstraint exact(int x, int y)
+	{
+		LocationConstraint zone = new LocationConstraint("exact");
+		zone.setExactX(x);
+		zone.setExactY(y);
+		return zone;
+	}
+
+	private static LocationConstraint bounds(int minX, int maxX, int minY, int maxY)
+	{
+		LocationConstraint zone = new LocationConstraint("bounds");
+		zone.setMinX(minX);
+		zone.setMaxX(maxX);
+		zone.setMinY(minY);
+		zone.setMaxY(maxY);
+		return zone;
+	}
+
+	private static LocationConstraint tolerance(int x, int y, int tolerance)
+	{
+		LocationConstraint zone = exact(x, y);
+		zone.setType("tolerance");
+		zone.setTolerance(tolerance);
+		return zone;
+	}
+
+	private String query(ZoneIndex index, int x, int y, int plane)
+	{
+		index.query(x, y, plane, out);
+		return out.toString();
+	}
+
+	@Test
+	public void tilesEitherSideOfCellBoundary()
+	{
+		// Cells are 64 tiles wide, so 63 and 64 fall in different cells
+		ZoneIndex index = new ZoneIndex(Arrays.asList(exact(63, 63), exact(64, 64), exact(63, 64)));
+
+		assertEquals("{0}", query(index, 63, 63, 0));
+		assertEquals("{1}", query(index, 64, 64, 0));
+		assertEquals("{2}", query(index, 63, 64, 0));
+		assertEquals("{}", query(index, 64, 63, 0));
+	}
+
+	@Test
+	public void zoneSpanningSeveralCells()
+	{
+		ZoneIndex index = new ZoneIndex(Arrays.asList(bounds(60, 200, 60, 130)));
+
+		assertEquals("{0}", query(index, 60, 60, 0));
+		assertEquals("{0}", query(index, 127, 64, 0));
+		assertEquals("{0}", query(index, 128, 128, 0));
+		assertEquals("{0}", query(index, 200, 130, 0));
+		assertEquals("{}", query(index, 201, 130, 0));
+		assertEquals("{}", query(index, 59, 100, 0));
+		assertEquals("{}", query(index, 100, 131, 0));
+	}
+
+	@Test
+	public void overlappingZonesOfDifferentSizes()
+	{
+		ZoneIndex index = new ZoneIndex(Arrays.asList(
+			bounds(0, 4000, 0, 4000), // Too many fine cells, so filed one level up
+			bounds(3190, 3260, 3190, 3260),
+			tolerance(3222, 3218, 2),
+			exact(3222, 3218)));
+
+		assertEquals("{0, 1, 2, 3}", query(index, 3222, 3218, 0));
+		assertEquals("{0, 1, 2}", query(index, 3224, 3220, 0));
+		assertEquals("{0, 1}", query(index, 3225, 3218, 0));
+		assertEquals("{0}", query(index, 3300, 3218, 0));
+		assertEquals("{}", query(index, 4001, 3218, 0));
+	}
+
+	@Test
+	public void largeZonesAtEveryLevel()
+	{
+		List<LocationConstraint> zones = new ArrayList<>();
+		// Side by side across the 1024-tile cells of the second level, each too big for the first
+		for (int i = 0; i < 50; i++)
+		{
+			zones.add(bounds(i * 1100, i * 1100 + 1099, 0, 1500));
+		}
+		zones.add(bounds(0, 100_000, 0, 100_000));
+		zones.add(bounds(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE));
+		ZoneIndex index = new ZoneIndex(zones);
+
+		assertEquals("{0, 50, 51}", query(index, 0, 0, 0));
+		assertEquals("{0, 50, 51}", query(index, 1099, 1500, 0));
+		assertEquals("{1, 50, 51}", query(index, 1100, 1500, 0));
+		assertEquals("{49, 50, 51}", query(index, 49 * 1100 + 1099, 700, 0));
+		assertEquals("{50, 51}", query(index, 50 * 1100, 700, 0));
+		assertEquals("{50, 51}", query(index, 3000, 1501, 0));
+		assertEquals("{51}", query(index, 100_001, 0, 0));
+		assertEquals("{51}", query(index, Integer.MAX_VALUE, Integer.MAX_VALUE, 0));
+	}
+
+	@Test
+	public void planeIsOptional()
+	{
+		LocationConstraint upstairs = exact(3222, 3218);
+		upstairs.setPlane(1);
+		ZoneIndex index = new ZoneIndex(Arrays.asList(exact(3222, 3218), upstairs));
+
+		assertEquals("{0}", query(index, 3222, 3218, 0));
+		assertEquals("{0, 1}", query(index, 3222, 3218, 1));
+	}
+
+	@Test
+	public void invalidZonesKeepTheirIds()
+	{
+		LocationConstraint missing = new LocationConstraint("bounds");
+		missing.setMinX(3200);
+		ZoneIndex index = new ZoneIndex(Arrays.asList(missing, bounds(10, 5, 0, 5), tolerance(3222, 3218, -1), exact(3222, 3218)));
+
+		assertEquals(4, index.size);
+		assertEquals("{3}", query(index, 3222, 3218, 0));
+	}
+
+	@Test
+	public void distantAndNegativeTilesDoNotMatch()
+	{
+		// Cell x 65536 has the same low 16 bits as cell x 0
+		ZoneIndex index = new ZoneIndex(Arrays.asList(exact(10, 10)));
+
+		assertEquals("{0}", query(index, 10, 10, 0));
+		assertEquals("{}", query(index, 65536 * 64 + 10, 10, 0));
+		assertEquals("{}", query(index, -54, 10, 0));
+	}
+
+	@Test
+	public void queryClearsPreviousResult()
+	{
+		ZoneIndex index = new ZoneIndex(Arrays.asList(exact(10, 10)));
+		out.set(5);
+
+		assertEquals("{}", query(index, 11, 10, 0));
+		assertEquals("{}", query(ZoneIndex.EMPTY, 10, 10, 0));
+	}
+}